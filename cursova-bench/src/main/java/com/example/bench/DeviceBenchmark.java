@@ -0,0 +1,72 @@
+package com.example.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.decimal4j.immutable.Decimal6f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.modeling.components.Clock;
+import com.example.modeling.components.device.Device;
+import com.example.modeling.utils.FunRand;
+
+/*
+ * A service of a single device: drawing the work time in process()
+ * and finishing it in run(), every invocation is one served request
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DeviceBenchmark {
+    // longer than any work time of the distribution
+    static final Decimal6f FINISH = Decimal6f.valueOf(1000);
+
+    Device device;
+    Clock clock;
+
+    @Setup
+    public void setUp() {
+        this.device = new Device(FunRand.getExponential(14), "Device");
+        this.device.setRandom(new SplittableRandom(25));
+
+        this.clock = new Clock();
+        this.device.setClock(this.clock);
+    }
+
+    @Benchmark
+    public boolean processAndRun() {
+        this.device.process();
+        return this.device.run(FINISH);
+    }
+
+    /*
+     * The same service driven through the clock, the way a model does
+     */
+    @Benchmark
+    public boolean processAndUpdate() {
+        this.device.process();
+        this.clock.advance(this.device.getWorkTicks());
+        return this.device.update();
+    }
+
+    /*
+     * Accounting of the time passed without a state change
+     */
+    @Benchmark
+    public boolean idleUpdate() {
+        this.clock.advance(this.clock.time().fromDouble(1));
+        return this.device.update();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.bench;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.modeling.utils.FunRand;
+import com.example.modeling.utils.FunRand.Distribution;
+
+/*
+ * A draw of every generator with the parameters of the base model.
+ * sample() is the path of the devices with a stream, get() the boxed
+ * one of plain suppliers on the generator of the thread
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FunRandBenchmark {
+    @Param({ "fixed", "notNullNorm", "uniform", "exponential", "erlang", "combined" })
+    public String generator;
+
+    Distribution distribution;
+    SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        this.distribution = switch (this.generator) {
+            case "fixed" -> FunRand.getFixed(5);
+            case "notNullNorm" -> FunRand.getNotNullNorm(18, 10);
+            case "uniform" -> FunRand.getUniform(2, 8);
+            case "exponential" -> FunRand.getExponential(14);
+            case "erlang" -> FunRand.getErlang(8, 32);
+            case "combined" -> FunRand.getCombined(List.of(
+                FunRand.getNotNullNorm(22, 10),
+                FunRand.getUniform(2, 8)));
+            default -> throw new IllegalArgumentException("Unknown generator: " + this.generator);
+        };
+
+        this.random = new SplittableRandom(25);
+    }
+
+    @Benchmark
+    public double sample() {
+        return this.distribution.sample(this.random);
+    }
+
+    @Benchmark
+    public Double get() {
+        return this.distribution.get();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.modeling.Model;
+import com.example.modeling.utils.FunRand;
+import com.example.test.Tester;
+
+/*
+ * Whole model runs on the topologies of the tests. A model is built and
+ * pre-run past its warm-up period once per fork, then every invocation
+ * keeps running it from where the previous one stopped, so the steady
+ * state is measured, not the filling of the queues. Times are in minutes,
+ * as in Tester. The events counter gives the fired event times per second
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ModelBenchmark {
+    // model time per invocation, an hour
+    static final double RUN_TIME = 60;
+    // the longest warm-up period Tester accepts, 200 hours
+    static final double PRE_RUN_TIME = 12000;
+    static final long SEED = 25;
+
+    @Param({ "base", "mod" })
+    public String topology;
+
+    Model model;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Events {
+        public long events;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            this.events = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.model = initializer(this.topology).get();
+        this.model.setSeed(SEED);
+        this.model.run(PRE_RUN_TIME);
+    }
+
+    @Benchmark
+    public long run(Events events) {
+        long before = this.model.getEvents();
+        this.model.run(RUN_TIME);
+
+        long fired = this.model.getEvents() - before;
+        events.events += fired;
+
+        return fired;
+    }
+
+    static Supplier<Model> initializer(String topology) {
+        var producerWork = FunRand.getErlang(8, 32);
+        var loader1Work = FunRand.getExponential(14);
+        var loader2Work = FunRand.getExponential(12);
+        var loaderCooldown = FunRand.getFixed(5);
+        var truckWork = FunRand.getCombined(List.of(
+            FunRand.getNotNullNorm(22, 10),
+            FunRand.getUniform(2, 8))
+        );
+        var truckCooldown = FunRand.getNotNullNorm(18, 10);
+
+        return switch (topology) {
+            case "base" -> Tester.getBaseModelInitializer(
+                producerWork, loader1Work, loader2Work, loaderCooldown, truckWork, truckCooldown);
+            case "mod" -> Tester.getModModelInitializer(
+                producerWork, loader1Work, loader2Work, loaderCooldown, truckWork, truckCooldown);
+            default -> throw new IllegalArgumentException("Unknown topology: " + topology);
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bench;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.decimal4j.immutable.Decimal6f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.modeling.components.CompDevice;
+import com.example.modeling.components.Component;
+import com.example.modeling.utils.FunRand;
+import com.example.modeling.utils.NextRulesImpl;
+import com.example.modeling.utils.Pair;
+
+/*
+ * Choice of the next component among n devices, every other one busy,
+ * so both rules skip the busy ones as they do in a loaded model
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class NextRulesBenchmark {
+    @Param({ "2", "5", "16" })
+    public int n;
+
+    final ArrayList<Pair<Component, Long>> next = new ArrayList<>();
+    final NextRulesImpl.Priority priority = new NextRulesImpl.Priority();
+    final NextRulesImpl.Probability probability = new NextRulesImpl.Probability();
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < this.n; i++) {
+            var device = new CompDevice(FunRand.getFixed(1), "Device" + i);
+
+            if (i % 2 == 1) {
+                device.process();
+            }
+
+            this.next.add(Pair.createPair(device, (long)(i + 1)));
+        }
+
+        this.probability.setRandom(new SplittableRandom(25));
+    }
+
+    @Benchmark
+    public Optional<Component> priority() {
+        return this.priority.getNextChosen(this.next);
+    }
+
+    @Benchmark
+    public Optional<Component> probability() {
+        return this.probability.getNextChosen(this.next);
+    }
+
+    @Benchmark
+    public Optional<Decimal6f> leftTime() {
+        return this.priority.getLeftTime(this.next);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.bench;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.modeling.components.Clock;
+import com.example.modeling.components.Queue;
+import com.example.modeling.utils.Metric;
+
+/*
+ * Reads of the metrics of a tracked queue after a random walk of its size,
+ * one by one and all at once through the metrics a schema is compiled from
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class QueueStatsBenchmark {
+    static final int STEPS = 100_000;
+
+    Queue.Stats stats;
+    List<Metric> metrics;
+
+    @Setup
+    public void setUp() {
+        var queue = new Queue("Queue", true);
+        var clock = new Clock();
+        var random = new SplittableRandom(25);
+
+        queue.setClock(clock);
+
+        for (int i = 0; i < STEPS; i++) {
+            clock.advance(clock.time().fromDouble(random.nextDouble()));
+            queue.update();
+
+            if (queue.getSize() > 0 && random.nextBoolean()) {
+                queue.dequeue();
+                queue.getStats().addServed();
+            } else {
+                queue.enqueue();
+                queue.getStats().addRequest();
+            }
+        }
+
+        this.stats = queue.getStats();
+        this.metrics = this.stats.getMetrics();
+    }
+
+    @Benchmark
+    public double averageQueueSize() {
+        return this.stats.getAverageQueueSize();
+    }
+
+    @Benchmark
+    public double avgWaitTime() {
+        return this.stats.getAvgWaitTime();
+    }
+
+    @Benchmark
+    public double pairAvgWaitTime() {
+        return this.stats.getAvgBatchWaitTime(2);
+    }
+
+    /*
+     * Batches of three are not accumulated, their wait is summed over the sizes
+     */
+    @Benchmark
+    public double tripleAvgWaitTime() {
+        return this.stats.getAvgBatchWaitTime(3);
+    }
+
+    @Benchmark
+    public void metrics(Blackhole bh) {
+        for (int i = 0; i < this.metrics.size(); i++) {
+            bh.consume(this.metrics.get(i).get());
+        }
+    }
+}
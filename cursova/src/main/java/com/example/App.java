@@ -9,6 +9,7 @@ public class App
         //Tester.verificationTest();
         //Tester.transPeriodTest();
         //Tester.resultTest();
+        //Tester.batchMeansTest();
         Tester.modTest();
     }
 }
@@ -6,8 +6,13 @@ import java.util.function.Supplier;
 
 import org.decimal4j.immutable.Decimal6f;
 
+import com.example.modeling.components.Clock;
 import com.example.modeling.components.CompDevice;
 import com.example.modeling.components.Component;
+import com.example.modeling.utils.Histogram;
+import com.example.modeling.utils.Metric;
+import com.example.modeling.utils.RandomStreams;
+import com.example.modeling.utils.TimeBackend;
 
 public class CompDeviceWithCooldown implements Component {
     private final Stats stats = new Stats();
@@ -16,6 +21,9 @@ public class CompDeviceWithCooldown implements Component {
     private final CompDevice device;
     private final CompDevice cooldown;
 
+    private Clock clock = new Clock();
+    private long lastTime = 0;
+
     public CompDeviceWithCooldown(
             Supplier<Double> rand,
             Supplier<Double> cooldownRand,
@@ -23,6 +31,9 @@ public class CompDeviceWithCooldown implements Component {
         this.name = name;
         this.device = new CompDevice(rand, name + "_device");
         this.cooldown = new CompDevice(cooldownRand, name + "_cooldown_timer");
+
+        this.device.setClock(this.clock);
+        this.cooldown.setClock(this.clock);
     }
 
     @Override
@@ -34,6 +45,11 @@ public class CompDeviceWithCooldown implements Component {
         this.device.setNext(next);
     }
 
+    @Override
+    public void replaceNext(Component next, Component replacement) {
+        this.device.replaceNext(next, replacement);
+    }
+
     @Override
     public Optional<Component> getNextChosen() {
         return device.getNextChosen();
@@ -50,46 +66,104 @@ public class CompDeviceWithCooldown implements Component {
     }
 
     @Override
-    public Optional<Decimal6f> getLeftTime() {
-        if (this.device.getLeftTime().isPresent()) {
-            return Optional.of(this.device.getLeftTime().get());
-        }
+    public String getDescription() {
+        return Component.super.getDescription()
+            + " work=" + this.device.getDistribution()
+            + " cooldown=" + this.cooldown.getDistribution();
+    }
 
-        if (this.cooldown.getLeftTime().isPresent()) {
-            return Optional.of(this.cooldown.getLeftTime().get());
-        }
+    @Override
+    public long leftTimeTicks() {
+        long time = this.device.leftTimeTicks();
 
-        return Optional.empty();
+        return time != IDLE
+            ? time
+            : this.cooldown.leftTimeTicks();
     }
 
+    /*
+     * Steps through the end of work and cooldown falling into the given time
+     */
     @Override
     public void run(Decimal6f time) {
-        if (this.device.getLeftTime().isPresent()) {
-            Decimal6f td = this.device.getLeftTime().get();
+        TimeBackend backend = this.clock.time();
+        long endTime = backend.add(this.clock.now(), TimeBackend.fromDecimal(time));
+        long t = this.leftTimeTicks();
 
-            this.device.run(time);
-            this.stats.addWorkTime(time.doubleValue());
+        while (t != IDLE && backend.compare(backend.add(this.clock.now(), t), endTime) <= 0) {
+            this.clock.advance(t);
+            this.update();
 
-            if (td.isEqualTo(time)) {
+            t = this.leftTimeTicks();
+        }
+
+        this.clock.advance(backend.subtract(endTime, this.clock.now()));
+        this.update();
+    }
+
+    @Override
+    public void update() {
+        TimeBackend backend = this.clock.time();
+        long now = this.clock.now();
+        double time = backend.toDouble(backend.subtract(now, this.lastTime));
+        this.lastTime = now;
+
+        if (this.device.isBusy()) {
+            this.stats.addWorkTime(time);
+
+            this.device.update();
+            if (!this.device.isBusy()) {
                 this.cooldown.process();
             }
 
-        } else if (this.cooldown.getLeftTime().isPresent()) {
-            this.cooldown.run(time);
-            this.stats.addCooldownTime(time.doubleValue());
+        } else if (this.cooldown.isBusy()) {
+            this.stats.addCooldownTime(time);
+            this.cooldown.update();
 
         } else {
-            this.stats.addWaitTime(time.doubleValue());
+            this.stats.addWaitTime(time);
+            this.device.update();
         }
     }
 
+    @Override
+    public void setClock(Clock clock) {
+        this.clock = clock;
+        this.lastTime = clock.now();
+
+        this.device.setClock(clock);
+        this.cooldown.setClock(clock);
+    }
+
+    @Override
+    public long[] getState() {
+        return new long[] { this.device.leftTimeTicks(), this.cooldown.leftTimeTicks() };
+    }
+
+    @Override
+    public void setState(long[] state) {
+        this.lastTime = this.clock.now();
+
+        this.device.setState(new long[] { state[0] });
+        this.cooldown.setState(new long[] { state[1] });
+    }
+
+    @Override
+    public void setRandomStreams(RandomStreams streams) {
+        this.device.setRandomStreams(streams);
+        this.cooldown.setRandomStreams(streams);
+    }
+
     @Override
     public boolean process() {
-        if (this.cooldown.getLeftTime().isPresent()) {
+        this.clock.touch(this);
+
+        if (this.cooldown.isBusy()) {
             throw new IllegalStateException(
                 "Cooldown is busy. Required time left: " + this.cooldown.getLeftTime().get());
         }
 
+        this.update();
         this.device.process();
         return true;
     }
@@ -124,6 +198,10 @@ public class CompDeviceWithCooldown implements Component {
             return CompDeviceWithCooldown.this.device.getStats().getServed();
         }
 
+        public Histogram getServiceTimes() {
+            return CompDeviceWithCooldown.this.device.getStats().getServiceTimes();
+        }
+
         public double getUtilization() {
             return this.totalTime != 0
                     ? (this.workTime + this.cooldownTime) / this.totalTime
@@ -148,6 +226,15 @@ public class CompDeviceWithCooldown implements Component {
             return CompDeviceWithCooldown.this.name;
         }
 
+        @Override
+        public List<Metric> getMetrics() {
+            return List.of(
+                new Metric(this.getName() + "_utilization", this::getUtilization),
+                new Metric(this.getName() + "_busyTime", this::getBusyTime),
+                new Metric(this.getName() + "_cooldownTime", this::getCooldownTime),
+                new Metric(this.getName() + "_served", this::getServed));
+        }
+
         public String toString() {
             String format = "%s:{busy_time=%.2f, cooldown_time=%.2f, total_time=%.2f, utilization=%.2f, served=%d}";
 
@@ -1,8 +1,7 @@
 package com.example;
 
-import org.decimal4j.immutable.Decimal6f;
-
 import com.example.modeling.components.Queue;
+import com.example.modeling.utils.TimeBackend;
 
 public class PairQueue extends Queue {
 
@@ -10,30 +9,31 @@ public class PairQueue extends Queue {
         super(name);
     }
 
-    @Override
-    public boolean process() {
-        this.stats.addRequest();
-        this.enqueue();
-        this.tryServe();
-        
-        return true;
+    public PairQueue(String name, boolean trackEntities) {
+        super(name, trackEntities);
     }
 
     @Override
-    public void run(Decimal6f time) {
-        this.stats.record(time.doubleValue());
-        this.tryServe();
+    public boolean needsPolling() {
+        return this.next.isPresent() && this.size > 1;
     }
 
-    private void tryServe() {
+    @Override
+    protected void tryServe() {
         if (this.next.isPresent()) {
             var next = this.next.get();
 
-            while (next.getLeftTime().isEmpty() && this.size > 1) {
+            while (!next.isBusy() && this.size > 1) {
                 if (next.process() == false) {
                     throw new IllegalStateException("Can't process!");
                 }
 
+                if (this.isTrackingEntities()) {
+                    TimeBackend time = this.clock.time();
+                    this.stats.getBatchTimes().record(
+                        time.toDouble(time.subtract(this.peekArrival(1), this.peekArrival(0))));
+                }
+
                 this.dequeue();
                 this.dequeue();
 
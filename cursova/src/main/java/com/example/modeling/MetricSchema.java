@@ -0,0 +1,53 @@
+package com.example.modeling;
+
+import java.util.List;
+
+import com.example.modeling.utils.Metric;
+
+/*
+ * Metrics of a model compiled into a flat column order when the model
+ * is built. Extraction reads every metric into a primitive array without
+ * looking at the types of the stats.
+ */
+public class MetricSchema {
+    private final Metric[] metrics;
+    private final List<String> names;
+
+    MetricSchema(List<Metric> metrics) {
+        this.metrics = metrics.toArray(Metric[]::new);
+        this.names = metrics.stream()
+            .map(Metric::getName)
+            .toList();
+    }
+
+    public int size() {
+        return this.metrics.length;
+    }
+
+    public List<String> getNames() {
+        return this.names;
+    }
+
+    /*
+     * Column of the metric, -1 if there is none
+     */
+    public int indexOf(String name) {
+        return this.names.indexOf(name);
+    }
+
+    public double[] extract() {
+        double[] values = new double[this.metrics.length];
+
+        this.extract(values, 0);
+        return values;
+    }
+
+    /*
+     * Writes the current values into the array starting at offset
+     */
+    public void extract(double[] values, int offset) {
+        for (int i = 0; i < this.metrics.length; i++) {
+            values[offset + i] = this.metrics[i].get();
+        }
+    }
+}
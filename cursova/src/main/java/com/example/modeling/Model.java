@@ -1,6 +1,9 @@
 package com.example.modeling;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
@@ -8,20 +11,52 @@ import java.util.Queue;
 
 import org.decimal4j.immutable.Decimal6f;
 
+import com.example.modeling.components.Clock;
 import com.example.modeling.components.Component;
 import com.example.modeling.components.Producer;
 import com.example.modeling.components.Component.ComponentStats;
-
+import com.example.modeling.utils.Metric;
+import com.example.modeling.utils.RandomStreams;
+import com.example.modeling.utils.TimeBackend;
+
+/*
+ * Next-event engine: busy components wait on a calendar ordered by the
+ * time they are due, so an event only updates the due components, the
+ * components they touch through process() and the polled ones.
+ */
 public class Model {
+    // one in this many event times is recorded as a ModelStepEvent
+    static final int STEP_SAMPLING = 1024;
+
     private final ArrayList<Component> orderedElems = new ArrayList<>();
-    private Decimal6f totalTime = Decimal6f.ZERO;
+    private final IdentityHashMap<Component, Integer> indexes = new IdentityHashMap<>();
+    private final TimeBackend time;
+    private final Calendar calendar;
+    private final MetricSchema schema;
+
+    private long totalTime = 0;
+    private long events = 0;
+    private boolean started = false;
+    private Profiler profiler = null;
 
     public Model(Producer start) {
-        addNextBFS(List.of(start));
+        this(List.of(start), TimeBackend.TICKS);
     }
 
     public Model(List<Producer> producers) {
+        this(producers, TimeBackend.TICKS);
+    }
+
+    public Model(Producer start, TimeBackend time) {
+        this(List.of(start), time);
+    }
+
+    public Model(List<Producer> producers, TimeBackend time) {
+        this.time = time;
+
         addNextBFS(producers);
+        this.calendar = new Calendar();
+        this.schema = this.compileSchema();
     }
 
     private void addNextBFS(List<Producer> producers) {
@@ -32,7 +67,8 @@ public class Model {
         while (!queue.isEmpty()) {
             var elem = queue.poll();
 
-            if (this.orderedElems.contains(elem) == false) {
+            if (this.indexes.containsKey(elem) == false) {
+                this.indexes.put(elem, this.orderedElems.size());
                 this.orderedElems.add(elem);
 
                 queue.addAll(elem.getAllNext());
@@ -40,55 +76,228 @@ public class Model {
         }
     }
 
-    public void run(double runTime) {
-        Decimal6f time = Decimal6f.valueOf(runTime);     
-        Decimal6f currentTime = Decimal6f.ZERO;
+    /*
+     * Total time followed by the metrics of every component in BFS order
+     */
+    private MetricSchema compileSchema() {
+        var metrics = new ArrayList<Metric>();
+
+        metrics.add(new Metric("total_time", () -> this.time.toDouble(this.totalTime)));
+
+        for (var elem : this.orderedElems) {
+            metrics.addAll(elem.getStats().getMetrics());
+        }
+
+        return new MetricSchema(metrics);
+    }
+
+    public MetricSchema getSchema() {
+        return this.schema;
+    }
+
+    /*
+     * Puts a profiler between the components and the engine, to be called
+     * before the first run. Unprofiled models call the components directly
+     */
+    public Profiler enableProfiling() {
+        if (this.profiler != null) {
+            return this.profiler;
+        }
+
+        if (this.started) {
+            throw new IllegalStateException("Model has already been run");
+        }
+
+        var profiler = new Profiler();
+        var wrapped = new ArrayList<Component>();
+
+        for (var elem : this.orderedElems) {
+            wrapped.add(profiler.wrap(elem));
+        }
+
+        for (var elem : this.orderedElems) {
+            for (var next : elem.getAllNext()) {
+                elem.replaceNext(next, wrapped.get(this.indexes.get(next)));
+            }
+        }
 
-        Optional<Decimal6f> t = getLeftTime();
-        Decimal6f dt = t.get();
+        // components touch the clock as themselves, both are kept indexed
+        for (int i = 0; i < wrapped.size(); i++) {
+            this.orderedElems.set(i, wrapped.get(i));
+            this.indexes.put(wrapped.get(i), i);
+        }
+
+        this.profiler = profiler;
+        return profiler;
+    }
+
+    /*
+     * Binds every component to the random streams of the given seed,
+     * to be called before the first run to make the whole run repeatable
+     */
+    public void setSeed(long seed) {
+        var streams = new RandomStreams(seed);
 
-        while (dt.isLessThanOrEqualTo(time) && 
-            currentTime.add(dt).isLessThanOrEqualTo(time)) {
+        for (var elem : this.orderedElems) {
+            elem.setRandomStreams(streams);
+        }
+    }
+
+    public void run(double runTime) {
+        var event = new ModelRunEvent();
+        event.begin();
+
+        long startNanos = System.nanoTime();
+        long startTime = this.totalTime;
+        long startEvents = this.events;
+        long endTime = this.time.add(this.totalTime, this.time.fromDouble(runTime));
+
+        if (!this.started) {
+            // lets the producers draw their first requests
+            this.calendar.flush(this.totalTime);
+            this.started = true;
+        }
 
-            currentTime = currentTime.add(dt);
-            this.changeState(dt);
+        this.calendar.settle();
 
-            t = getLeftTime();
-            if (t.isPresent()) {
-                dt = t.get();
+        while (!this.calendar.isEmpty() && this.time.compare(this.calendar.peek(), endTime) <= 0) {
+            if (this.events % STEP_SAMPLING == 0) {
+                this.sampledFire(this.calendar.peek());
             } else {
-                break;
+                this.calendar.fire(this.calendar.peek());
             }
+            this.events++;
+        }
+
+        this.calendar.flush(endTime);
+        this.totalTime = endTime;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.start = this.time.toDouble(startTime);
+            event.span = runTime;
+            event.events = this.events - startEvents;
+            event.eventsPerSecond = event.events / ((System.nanoTime() - startNanos) / 1e9);
+            event.components = this.orderedElems.size();
+            event.commit();
+        }
+    }
+
+    private void sampledFire(long time) {
+        var event = new ModelStepEvent();
+        long previous = this.calendar.now();
+
+        event.begin();
+        int updated = this.calendar.fire(time);
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.time = this.time.toDouble(time);
+            event.dt = this.time.toDouble(this.time.subtract(time, previous));
+            event.components = updated;
+            event.commit();
+        }
+    }
+
+    /*
+     * Continues the run in nBatches consecutive batches of batchTime,
+     * the stats are cleared before every batch and the values of the
+     * schema are taken after it, a row per batch
+     */
+    public double[][] runBatches(double batchTime, int nBatches) {
+        double[][] batches = new double[nBatches][];
+        var stats = this.getStats();
+
+        for (int i = 0; i < nBatches; i++) {
+            stats.clear();
+            this.run(batchTime);
+
+            batches[i] = this.schema.extract();
+        }
+
+        return batches;
+    }
+
+    /*
+     * Saves the state of every component at the current time,
+     * stats and random streams are not saved
+     */
+    public Snapshot snapshot() {
+        int n = this.orderedElems.size();
+
+        String[] names = new String[n];
+        long[][] states = new long[n][];
+
+        for (int i = 0; i < n; i++) {
+            var elem = this.orderedElems.get(i);
+
+            names[i] = elem.getName();
+            states[i] = elem.getState().clone();
         }
 
-        this.changeState(time.subtract(currentTime));
-        this.totalTime = this.totalTime.add(time);
+        return new Snapshot(this.time, this.totalTime, names, states);
     }
 
-    private void changeState(Decimal6f time) {
-        if (time.isEqualTo(Decimal6f.ZERO)) {
-            return;
+    /*
+     * Continues a model built the same way as the one of the snapshot from
+     * its state, with empty stats. Throws exception if the model has been run
+     */
+    public void restore(Snapshot snapshot) {
+        if (this.started) {
+            throw new IllegalStateException("Model has already been run");
+        }
+
+        if (snapshot.time != this.time || !Arrays.equals(snapshot.names, this.orderedElems.stream()
+                .map(Component::getName)
+                .toArray(String[]::new))) {
+            throw new IllegalArgumentException("Snapshot was taken from another model");
         }
 
-        for (var elem : orderedElems.reversed()) {
-            elem.run(time);
+        this.calendar.restore(snapshot.totalTime);
+
+        for (int i = 0; i < this.orderedElems.size(); i++) {
+            this.orderedElems.get(i).setState(snapshot.states[i]);
         }
+
+        this.totalTime = snapshot.totalTime;
+        this.started = true;
     }
 
     public Optional<Decimal6f> getLeftTime() {
-        Decimal6f time = Decimal6f.MAX_VALUE;
+        this.calendar.settle();
 
-        for (Component elem : this.orderedElems) {
-            Optional<Decimal6f> elemTime = elem.getLeftTime();
+        return !this.calendar.isEmpty()
+            ? Optional.of(TimeBackend.toDecimal(this.time.subtract(this.calendar.peek(), this.totalTime)))
+            : Optional.empty();
+    }
 
-            if (elemTime.isPresent()) {
-                time = time.min(elemTime.get());
-            }
+    /*
+     * Every component in BFS order with its parameters and the names of
+     * its next components. Suppliers other than FunRand distributions are
+     * described by identity, so models using them are never alike
+     */
+    public String getDescription() {
+        var sb = new StringBuilder(this.time.name());
+
+        for (var elem : this.orderedElems) {
+            sb.append('\n')
+                .append(elem.getDescription())
+                .append(" -> ")
+                .append(elem.getAllNext().stream().map(Component::getName).toList());
         }
 
-        return time != Decimal6f.MAX_VALUE
-                ? Optional.of(time)
-                : Optional.empty();
+        return sb.toString();
+    }
+
+    /*
+     * Number of event times fired so far, for throughput measurements
+     */
+    public long getEvents() {
+        return this.events;
+    }
+
+    public TimeBackend getTimeBackend() {
+        return this.time;
     }
 
     /*
@@ -99,22 +308,259 @@ public class Model {
         for (Component elem : this.orderedElems) {
             stats.add(elem.getStats());
         }
-        return new ModelStats(stats, this.totalTime.doubleValue());
+        return new ModelStats(stats, this.time.toDouble(this.totalTime), this.schema);
+    }
+
+    /*
+     * Shared clock of the model. Components keep absolute timestamps
+     * against it, so moving the clock costs nothing for idle ones.
+     * Pending events are kept in a binary heap of (time, index) pairs.
+     */
+    private class Calendar extends Clock {
+        private static final long NONE = Long.MIN_VALUE;
+
+        private final long[] dueTime;
+
+        private long[] heapTime;
+        private int[] heapIndex;
+        private int heapSize = 0;
+
+        private final BitSet touched;
+        private final BitSet polled;
+        private final BitSet due;
+
+        Calendar() {
+            super(Model.this.time);
+
+            int n = Model.this.orderedElems.size();
+
+            this.dueTime = new long[n];
+            this.heapTime = new long[Math.max(n, 1)];
+            this.heapIndex = new int[Math.max(n, 1)];
+
+            this.touched = new BitSet(n);
+            this.polled = new BitSet(n);
+            this.due = new BitSet(n);
+
+            for (int i = 0; i < n; i++) {
+                this.dueTime[i] = NONE;
+                this.touched.set(i);
+
+                Model.this.orderedElems.get(i).setClock(this);
+            }
+        }
+
+        @Override
+        public void advance(long time) {
+            throw new IllegalStateException("Model clock is moved by the model only");
+        }
+
+        @Override
+        public void touch(Component elem) {
+            Integer index = Model.this.indexes.get(elem);
+
+            if (index != null) {
+                this.touched.set(index);
+            }
+        }
+
+        boolean isEmpty() {
+            this.dropStale();
+            return this.heapSize == 0;
+        }
+
+        long peek() {
+            this.dropStale();
+            return this.heapTime[0];
+        }
+
+        private void dropStale() {
+            while (this.heapSize > 0 && this.heapTime[0] != this.dueTime[this.heapIndex[0]]) {
+                this.pop();
+            }
+        }
+
+        /*
+         * Updates the components due at the given time together with
+         * the polled ones, in reverse BFS order like a full scan would.
+         * Returns the number of updated components
+         */
+        int fire(long time) {
+            this.now = time;
+
+            while (this.heapSize > 0 && this.heapTime[0] == time) {
+                int index = this.heapIndex[0];
+                this.pop();
+
+                if (this.dueTime[index] == time) {
+                    this.dueTime[index] = NONE;
+                    this.due.set(index);
+                }
+            }
+
+            this.due.or(this.polled);
+            int updated = 0;
+
+            for (int i = this.due.length() - 1; i >= 0; i = this.due.previousSetBit(i - 1)) {
+                Model.this.orderedElems.get(i).update();
+                updated++;
+            }
+            this.touched.or(this.due);
+            this.due.clear();
+
+            this.settle();
+            return updated;
+        }
+
+        /*
+         * Brings every component up to the given time
+         */
+        void flush(long time) {
+            this.now = time;
+
+            for (var elem : Model.this.orderedElems.reversed()) {
+                elem.update();
+            }
+            this.touched.set(0, Model.this.orderedElems.size());
+
+            this.settle();
+        }
+
+        /*
+         * Moves an unstarted calendar to the given time and rebinds every
+         * component to it, so they account nothing for the skipped time
+         */
+        void restore(long time) {
+            this.now = time;
+
+            for (var elem : Model.this.orderedElems) {
+                elem.setClock(this);
+            }
+            this.touched.set(0, Model.this.orderedElems.size());
+        }
+
+        /*
+         * Reschedules the touched components and updates the polled set
+         */
+        void settle() {
+            for (int i = this.touched.nextSetBit(0); i >= 0; i = this.touched.nextSetBit(i + 1)) {
+                var elem = Model.this.orderedElems.get(i);
+
+                this.polled.set(i, elem.needsPolling());
+
+                long left = elem.isTimed() ? elem.leftTimeTicks() : Component.IDLE;
+                if (left != Component.IDLE && left != Component.BLOCKED) {
+                    long due = this.time.add(this.now, left);
+
+                    if (due != this.dueTime[i]) {
+                        this.dueTime[i] = due;
+                        this.push(due, i);
+                    }
+                } else {
+                    this.dueTime[i] = NONE;
+                }
+            }
+
+            this.touched.clear();
+        }
+
+        private void push(long time, int index) {
+            if (this.heapSize == this.heapTime.length) {
+                this.heapTime = Arrays.copyOf(this.heapTime, this.heapSize * 2);
+                this.heapIndex = Arrays.copyOf(this.heapIndex, this.heapSize * 2);
+            }
+
+            int i = this.heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+
+                if (this.time.compare(this.heapTime[parent], time) <= 0) {
+                    break;
+                }
+
+                this.heapTime[i] = this.heapTime[parent];
+                this.heapIndex[i] = this.heapIndex[parent];
+                i = parent;
+            }
+
+            this.heapTime[i] = time;
+            this.heapIndex[i] = index;
+        }
+
+        private void pop() {
+            long time = this.heapTime[--this.heapSize];
+            int index = this.heapIndex[this.heapSize];
+
+            int i = 0;
+            while (2 * i + 1 < this.heapSize) {
+                int child = 2 * i + 1;
+
+                if (child + 1 < this.heapSize 
+                    && this.time.compare(this.heapTime[child + 1], this.heapTime[child]) < 0) {
+                    child++;
+                }
+
+                if (this.time.compare(time, this.heapTime[child]) <= 0) {
+                    break;
+                }
+
+                this.heapTime[i] = this.heapTime[child];
+                this.heapIndex[i] = this.heapIndex[child];
+                i = child;
+            }
+
+            this.heapTime[i] = time;
+            this.heapIndex[i] = index;
+        }
+    }
+
+    /*
+     * Component states of a model at some time, see Model.snapshot()
+     */
+    public static class Snapshot {
+        private final TimeBackend time;
+        private final long totalTime;
+        private final String[] names;
+        private final long[][] states;
+
+        Snapshot(TimeBackend time, long totalTime, String[] names, long[][] states) {
+            this.time = time;
+            this.totalTime = totalTime;
+            this.names = names;
+            this.states = states;
+        }
+
+        public double getTotalTime() {
+            return this.time.toDouble(this.totalTime);
+        }
     }
 
     public class ModelStats {
         private final ArrayList<Object> elemStats;
         private final double totalTime;
+        private final MetricSchema schema;
 
-        ModelStats(ArrayList<Object> elemStats, double totalTime) {
+        ModelStats(ArrayList<Object> elemStats, double totalTime, MetricSchema schema) {
             this.elemStats = elemStats;
             this.totalTime = totalTime;
+            this.schema = schema;
         }
 
         public double getTotalTime() {
             return this.totalTime;
         }
 
+        public MetricSchema getSchema() {
+            return this.schema;
+        }
+
+        /*
+         * Current values of the metrics in schema order
+         */
+        public double[] getValues() {
+            return this.schema.extract();
+        }
+
         @SuppressWarnings("unchecked")
         public ArrayList<ComponentStats> get() {
             return (ArrayList<ComponentStats>) this.elemStats.clone();
@@ -136,8 +582,8 @@ public class Model {
         }
 
         public void clear() {
-            for (var stats : this.get()) {
-                stats.clear();
+            for (var stats : this.elemStats) {
+                ((ComponentStats)stats).clear();
             }
         }
     }
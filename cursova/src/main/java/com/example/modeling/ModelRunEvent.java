@@ -0,0 +1,34 @@
+package com.example.modeling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Flight recorder event of a Model.run() call, its duration is the wall time
+ */
+@Name("com.example.ModelRun")
+@Label("Model Run")
+@Category({ "Simulation", "Model" })
+@StackTrace(false)
+final class ModelRunEvent extends jdk.jfr.Event {
+    @Label("Start")
+    @Description("Model time the run started at")
+    double start;
+
+    @Label("Span")
+    @Description("Model time simulated by the run")
+    double span;
+
+    @Label("Events")
+    @Description("Event times fired by the run")
+    long events;
+
+    @Label("Events per Second")
+    double eventsPerSecond;
+
+    @Label("Components")
+    int components;
+}
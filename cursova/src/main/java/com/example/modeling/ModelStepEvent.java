@@ -0,0 +1,29 @@
+package com.example.modeling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Flight recorder event of a single event time of a model,
+ * emitted for one in Model.STEP_SAMPLING event times
+ */
+@Name("com.example.ModelStep")
+@Label("Model Step")
+@Category({ "Simulation", "Model" })
+@StackTrace(false)
+final class ModelStepEvent extends jdk.jfr.Event {
+    @Label("Time")
+    @Description("Model time of the step")
+    double time;
+
+    @Label("Delta")
+    @Description("Model time since the previous step")
+    double dt;
+
+    @Label("Components")
+    @Description("Components updated by the step")
+    int components;
+}
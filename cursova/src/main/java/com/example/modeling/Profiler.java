@@ -0,0 +1,310 @@
+package com.example.modeling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.decimal4j.immutable.Decimal6f;
+
+import com.example.modeling.components.Clock;
+import com.example.modeling.components.Component;
+import com.example.modeling.components.Connection;
+import com.example.modeling.utils.RandomStreams;
+
+/*
+ * Calls and wall time per component and method of a profiled model, see
+ * Model.enableProfiling(). Components are wrapped in decorators put on
+ * every link between them, so the calls they make to each other are seen
+ * as well as the ones of the model. Self time leaves out the time of the
+ * profiled calls made inside, total time keeps it, so the recursion of
+ * leftTimeTicks() through connections is counted once by self time.
+ * A profiler is used by the thread running its model only
+ */
+public class Profiler {
+    public enum Method {
+        LEFT_TIME("leftTimeTicks"),
+        RUN("run"),
+        UPDATE("update"),
+        PROCESS("process"),
+        ALL_NEXT("getAllNext"),
+        PREDICATOR("predicator");
+
+        private final String title;
+
+        Method(String title) {
+            this.title = title;
+        }
+
+        public String getTitle() {
+            return this.title;
+        }
+    }
+
+    private static final int METHODS = Method.values().length;
+
+    private final List<String> names = new ArrayList<>();
+
+    private long[] calls = new long[0];
+    private long[] totalNanos = new long[0];
+    private long[] selfNanos = new long[0];
+
+    // time of the profiled calls made by the current one
+    private long childNanos = 0;
+    private long[] stack = new long[16];
+    private int depth = 0;
+
+    Profiler() {
+    }
+
+    /*
+     * Decorator of the component, the predicator of a guarded
+     * connection is replaced with a counting one
+     */
+    Component wrap(Component elem) {
+        int index = this.names.size();
+        this.names.add(elem.getName());
+
+        this.calls = Arrays.copyOf(this.calls, this.names.size() * METHODS);
+        this.totalNanos = Arrays.copyOf(this.totalNanos, this.names.size() * METHODS);
+        this.selfNanos = Arrays.copyOf(this.selfNanos, this.names.size() * METHODS);
+
+        if (elem instanceof Connection con && con.getRules().hasPredicator()) {
+            Supplier<Boolean> predicator = con.getRules().getPredicator();
+
+            con.getRules().setPredicator(() -> {
+                long start = this.enter();
+                try {
+                    return predicator.get();
+                } finally {
+                    this.exit(index, Method.PREDICATOR, start);
+                }
+            });
+        }
+
+        return new ProfiledComponent(elem, index);
+    }
+
+    private long enter() {
+        if (this.depth == this.stack.length) {
+            this.stack = Arrays.copyOf(this.stack, this.depth * 2);
+        }
+
+        this.stack[this.depth++] = this.childNanos;
+        this.childNanos = 0;
+
+        return System.nanoTime();
+    }
+
+    private void exit(int index, Method method, long start) {
+        long elapsed = System.nanoTime() - start;
+        int i = index * METHODS + method.ordinal();
+
+        this.calls[i]++;
+        this.totalNanos[i] += elapsed;
+        this.selfNanos[i] += elapsed - this.childNanos;
+
+        this.childNanos = this.stack[--this.depth] + elapsed;
+    }
+
+    public long getCalls(String name, Method method) {
+        return this.calls[this.slot(name, method)];
+    }
+
+    public long getTotalNanos(String name, Method method) {
+        return this.totalNanos[this.slot(name, method)];
+    }
+
+    public long getSelfNanos(String name, Method method) {
+        return this.selfNanos[this.slot(name, method)];
+    }
+
+    private int slot(String name, Method method) {
+        int index = this.names.indexOf(name);
+
+        if (index < 0) {
+            throw new IllegalArgumentException("Component is not profiled: " + name);
+        }
+
+        return index * METHODS + method.ordinal();
+    }
+
+    public void clear() {
+        Arrays.fill(this.calls, 0);
+        Arrays.fill(this.totalNanos, 0);
+        Arrays.fill(this.selfNanos, 0);
+    }
+
+    /*
+     * Table of the called methods, the most expensive by self time first
+     */
+    public String toString() {
+        var rows = new ArrayList<Integer>();
+
+        for (int i = 0; i < this.calls.length; i++) {
+            if (this.calls[i] > 0) {
+                rows.add(i);
+            }
+        }
+
+        rows.sort(Comparator.comparingLong((Integer i) -> this.selfNanos[i]).reversed());
+
+        var sb = new StringBuilder(String.format(
+            "%-24s %-14s %12s %12s %12s %12s",
+            "component", "method", "calls", "self_ms", "total_ms", "self_ns/call"));
+
+        for (int i : rows) {
+            sb.append('\n').append(String.format(
+                "%-24s %-14s %12d %12.3f %12.3f %12.1f",
+                this.names.get(i / METHODS),
+                Method.values()[i % METHODS].getTitle(),
+                this.calls[i],
+                this.selfNanos[i] / 1e6,
+                this.totalNanos[i] / 1e6,
+                (double)this.selfNanos[i] / this.calls[i]));
+        }
+
+        return sb.toString();
+    }
+
+    /*
+     * Times the methods of the component the engine and the other
+     * components call, everything else is passed through as is
+     */
+    private class ProfiledComponent implements Component {
+        private final Component elem;
+        private final int index;
+
+        ProfiledComponent(Component elem, int index) {
+            this.elem = elem;
+            this.index = index;
+        }
+
+        @Override
+        public long leftTimeTicks() {
+            long start = Profiler.this.enter();
+            try {
+                return this.elem.leftTimeTicks();
+            } finally {
+                Profiler.this.exit(this.index, Method.LEFT_TIME, start);
+            }
+        }
+
+        @Override
+        public boolean isBusy() {
+            long start = Profiler.this.enter();
+            try {
+                return this.elem.isBusy();
+            } finally {
+                Profiler.this.exit(this.index, Method.LEFT_TIME, start);
+            }
+        }
+
+        @Override
+        public Optional<Decimal6f> getLeftTime() {
+            long start = Profiler.this.enter();
+            try {
+                return this.elem.getLeftTime();
+            } finally {
+                Profiler.this.exit(this.index, Method.LEFT_TIME, start);
+            }
+        }
+
+        @Override
+        public void run(Decimal6f time) {
+            long start = Profiler.this.enter();
+            try {
+                this.elem.run(time);
+            } finally {
+                Profiler.this.exit(this.index, Method.RUN, start);
+            }
+        }
+
+        @Override
+        public void update() {
+            long start = Profiler.this.enter();
+            try {
+                this.elem.update();
+            } finally {
+                Profiler.this.exit(this.index, Method.UPDATE, start);
+            }
+        }
+
+        @Override
+        public boolean process() {
+            long start = Profiler.this.enter();
+            try {
+                return this.elem.process();
+            } finally {
+                Profiler.this.exit(this.index, Method.PROCESS, start);
+            }
+        }
+
+        @Override
+        public List<Component> getAllNext() {
+            long start = Profiler.this.enter();
+            try {
+                return this.elem.getAllNext();
+            } finally {
+                Profiler.this.exit(this.index, Method.ALL_NEXT, start);
+            }
+        }
+
+        @Override
+        public Optional<Component> getNextChosen() {
+            return this.elem.getNextChosen();
+        }
+
+        @Override
+        public ComponentStats getStats() {
+            return this.elem.getStats();
+        }
+
+        @Override
+        public String getName() {
+            return this.elem.getName();
+        }
+
+        @Override
+        public String getDescription() {
+            return this.elem.getDescription();
+        }
+
+        @Override
+        public void replaceNext(Component next, Component replacement) {
+            this.elem.replaceNext(next, replacement);
+        }
+
+        @Override
+        public void setClock(Clock clock) {
+            this.elem.setClock(clock);
+        }
+
+        @Override
+        public void setRandomStreams(RandomStreams streams) {
+            this.elem.setRandomStreams(streams);
+        }
+
+        @Override
+        public long[] getState() {
+            return this.elem.getState();
+        }
+
+        @Override
+        public void setState(long[] state) {
+            this.elem.setState(state);
+        }
+
+        @Override
+        public boolean isTimed() {
+            return this.elem.isTimed();
+        }
+
+        @Override
+        public boolean needsPolling() {
+            return this.elem.needsPolling();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.modeling.components;
+
+import com.example.modeling.utils.TimeBackend;
+
+/*
+ * Time source shared by the components of one model, in ticks of the backend.
+ * Components keep absolute timestamps against it and call touch() before
+ * they change state, so the owner of the clock can put them on its calendar.
+ * Standalone components use a plain clock moved by their own run(time).
+ */
+public class Clock {
+    protected final TimeBackend time;
+    protected long now = 0;
+
+    public Clock() {
+        this(TimeBackend.TICKS);
+    }
+
+    public Clock(TimeBackend time) {
+        this.time = time;
+    }
+
+    public TimeBackend time() {
+        return this.time;
+    }
+
+    public long now() {
+        return this.now;
+    }
+
+    public void advance(long time) {
+        this.now = this.time.add(this.now, time);
+    }
+
+    public void touch(Component elem) {
+        return;
+    }
+}
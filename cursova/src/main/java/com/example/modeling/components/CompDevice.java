@@ -7,53 +7,89 @@ import java.util.function.Supplier;
 import org.decimal4j.immutable.Decimal6f;
 
 import com.example.modeling.components.device.Device;
+import com.example.modeling.utils.RandomStreams;
+import com.example.modeling.utils.TimeBackend;
 
 public class CompDevice implements Component {
     private final Device device;
     private final String name;
 
     private Optional<Component> next = Optional.empty();
+    private Clock clock = new Clock();
 
     public CompDevice(Supplier<Double> rand, String name) {
         this.name = name;
         this.device = new Device(rand, this.name);
+        this.device.setClock(this.clock);
     }
 
     public void setNext(Component next) {
         this.next = Optional.of(next);
     }
 
+    @Override
+    public void replaceNext(Component next, Component replacement) {
+        if (this.next.isPresent() && this.next.get() == next) {
+            this.next = Optional.of(replacement);
+        }
+    }
+
     @Override
     public void run(Decimal6f time) {
-        if (this.device.getWorkTime().isPresent()) {
-
-            if (time.isGreaterThan(this.device.getWorkTime().get())) {
-                throw new IllegalArgumentException(
-                    String.format(
-                        "Invalid time %.4f: exceeds device work time %.4f",
-                        time.doubleValue(),
-                        this.device.getWorkTime().get().doubleValue()
-                    )
-                );
-            }
-            
-            if(this.device.run(time)) {
-                this.next.ifPresent(next -> next.process());
-            }
-        } else {
-            this.device.wait(time);
+        long workTime = this.device.getWorkTicks();
+
+        if (workTime != IDLE && TimeBackend.fromDecimal(time) > workTime) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "Invalid time %.4f: exceeds device work time %.4f",
+                    time.doubleValue(),
+                    TimeBackend.toDecimal(workTime).doubleValue()
+                )
+            );
+        }
+
+        this.clock.advance(TimeBackend.fromDecimal(time));
+        this.update();
+    }
+
+    @Override
+    public void update() {
+        if (this.device.update()) {
+            this.next.ifPresent(next -> next.process());
         }
     }
 
+    @Override
+    public void setClock(Clock clock) {
+        this.clock = clock;
+        this.device.setClock(clock);
+    }
+
+    @Override
+    public long[] getState() {
+        return new long[] { this.device.getWorkTicks() };
+    }
+
+    @Override
+    public void setState(long[] state) {
+        this.device.setWorkTicks(state[0]);
+    }
+
+    @Override
+    public void setRandomStreams(RandomStreams streams) {
+        this.device.setRandom(streams.get(this.name));
+    }
+
     @Override
     public boolean process() {
+        this.clock.touch(this);
         this.device.process();
         return true;
     }
 
     @Override
-    public Optional<Decimal6f> getLeftTime() {
-        return this.device.getWorkTime();
+    public long leftTimeTicks() {
+        return this.device.getWorkTicks();
     }
 
     @Override
@@ -77,4 +113,13 @@ public class CompDevice implements Component {
     public String getName() {
         return this.name;
     }
-}
\ No newline at end of file
+
+    public Supplier<Double> getDistribution() {
+        return this.device.getDistribution();
+    }
+
+    @Override
+    public String getDescription() {
+        return Component.super.getDescription() + " work=" + this.getDistribution();
+    }
+}
@@ -5,21 +5,128 @@ import java.util.Optional;
 
 import org.decimal4j.immutable.Decimal6f;
 
+import com.example.modeling.utils.Metric;
+import com.example.modeling.utils.RandomStreams;
+import com.example.modeling.utils.TimeBackend;
+
 public interface Component {
+    /*
+     * Left time of a component without work in progress
+     */
+    long IDLE = -1;
+
+    /*
+     * Left time of a component that can't free itself (Decimal6f.MAX_VALUE)
+     */
+    long BLOCKED = Long.MAX_VALUE;
+
     List<Component> getAllNext();
     Optional<Component> getNextChosen();
 
     ComponentStats getStats();
     String getName();
 
-    Optional<Decimal6f> getLeftTime();
+    /*
+     * Type, name and parameters of the component, two models built
+     * the same way have the same descriptions, see Model.getDescription()
+     */
+    default String getDescription() {
+        return this.getClass().getSimpleName() + " " + this.getName();
+    }
+
+    /*
+     * Time left until the component is done with its work in ticks,
+     * IDLE if there is no work in progress
+     */
+    long leftTimeTicks();
+
+    default boolean isBusy() {
+        return this.leftTimeTicks() != IDLE;
+    }
+
+    default Optional<Decimal6f> getLeftTime() {
+        long time = this.leftTimeTicks();
 
+        return time != IDLE
+            ? Optional.of(TimeBackend.toDecimal(time))
+            : Optional.empty();
+    }
+
+    /*
+     * Moves a standalone component forward by the given time.
+     * Inside a model the clock is moved by the model itself
+     */
     void run(Decimal6f time);
+
+    /*
+     * Brings the component up to the current time of its clock
+     */
+    void update();
+
     boolean process();
 
+    /*
+     * Points the links to the given next component at the replacement,
+     * so decorators can be put between the components of a built model
+     */
+    default void replaceNext(Component next, Component replacement) {
+        return;
+    }
+
+    /*
+     * Binds the component to the clock of the model it belongs to
+     */
+    default void setClock(Clock clock) {
+        return;
+    }
+
+    /*
+     * Binds the component to the random streams of the model it belongs to
+     */
+    default void setRandomStreams(RandomStreams streams) {
+        return;
+    }
+
+    /*
+     * State of the component for a model snapshot, times are kept
+     * relative to the clock. Stats are not part of the state
+     */
+    default long[] getState() {
+        return new long[0];
+    }
+
+    /*
+     * Restores a state returned by getState() at the current time of the clock
+     */
+    default void setState(long[] state) {
+        return;
+    }
+
+    /*
+     * False when getLeftTime() only mirrors the next components,
+     * such a component is never put on the event calendar
+     */
+    default boolean isTimed() {
+        return true;
+    }
+
+    /*
+     * True while the component has to be run on every event,
+     * e.g. a queue holding requests for a busy next component
+     */
+    default boolean needsPolling() {
+        return false;
+    }
+
     public interface ComponentStats {
         void clear();
+
+        /*
+         * Metrics exported per replication, in column order. Read once
+         * when the model is built, the metrics are bound to these stats
+         */
+        default List<Metric> getMetrics() {
+            return List.of();
+        }
     }
 }
-
-
@@ -3,11 +3,16 @@ package com.example.modeling.components;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
 
 import org.decimal4j.immutable.Decimal6f;
 
+import com.example.modeling.utils.Metric;
 import com.example.modeling.utils.Pair;
+import com.example.modeling.utils.RandomStreams;
+import com.example.modeling.utils.TimeBackend;
 
 public class Connection implements Component {
     private final Stats stats = new Stats();
@@ -16,6 +21,9 @@ public class Connection implements Component {
     private final ArrayList<Pair<Component, Long>> next = new ArrayList<>();
     private final NextRules priority;
 
+    private Clock clock = new Clock();
+    private long lastTime = 0;
+
     public Connection(NextRules priority, String name) {
         this.priority = priority;
         this.name = name;
@@ -25,13 +33,67 @@ public class Connection implements Component {
         this.next.add(Pair.createPair(next, score));
     }
 
+    @Override
+    public void replaceNext(Component next, Component replacement) {
+        for (int i = 0; i < this.next.size(); i++) {
+            var pair = this.next.get(i);
+
+            if (pair.get0() == next) {
+                this.next.set(i, Pair.createPair(replacement, pair.get1()));
+            }
+        }
+    }
+
+    public NextRules getRules() {
+        return this.priority;
+    }
+
     @Override
     public void run(Decimal6f time) {
-        this.stats.updateTime(time.doubleValue());
+        this.clock.advance(TimeBackend.fromDecimal(time));
+        this.update();
+    }
+
+    @Override
+    public void update() {
+        TimeBackend time = this.clock.time();
+        long now = this.clock.now();
+
+        if (time.compare(now, this.lastTime) > 0) {
+            this.stats.updateTime(time.toDouble(time.subtract(now, this.lastTime)));
+            this.lastTime = now;
+        }
+    }
+
+    @Override
+    public void setClock(Clock clock) {
+        this.clock = clock;
+        this.lastTime = clock.now();
+    }
+
+    @Override
+    public void setRandomStreams(RandomStreams streams) {
+        this.priority.setRandom(streams.get(this.name));
+    }
+
+    @Override
+    public boolean isTimed() {
+        return false;
+    }
+
+    /*
+     * A guarded connection samples its availability on every event
+     */
+    @Override
+    public boolean needsPolling() {
+        return this.priority.hasPredicator();
     }
 
     @Override
     public boolean process() {
+        this.clock.touch(this);
+        this.update();
+
         stats.addRequest();
 
         if (this.priority.predicator.get() == false) {
@@ -49,12 +111,12 @@ public class Connection implements Component {
     }
 
     @Override
-    public Optional<Decimal6f> getLeftTime() {
+    public long leftTimeTicks() {
         if (this.priority.predicator.get() == false) {
-            return Optional.of(Decimal6f.MAX_VALUE);
+            return BLOCKED;
         }
 
-        return priority.getLeftTime(next);
+        return priority.getLeftTimeTicks(next);
     }
 
     @Override
@@ -62,8 +124,13 @@ public class Connection implements Component {
         return this.stats;
     }
 
+    /*
+     * Availability is kept as the running time the predicator held,
+     * every interval is weighted by the value sampled at its end
+     */
     public class Stats implements ComponentStats {
-        private ArrayList<Pair<Double, Double>> availability = new ArrayList<>();
+        private double availableTime = 0;
+        private boolean sampled = false;
         private long requestsNumber = 0;
         private long served = 0;
         private double totalTime = 0;
@@ -73,26 +140,18 @@ public class Connection implements Component {
         }
 
         private void checkAvailability(double time) {
-            availability.add(Pair.createPair(
-                (Connection.this.priority.predicator.get() ? 1.0 : 0), 
-                time)
-            );
+            if (Connection.this.priority.predicator.get()) {
+                this.availableTime += time;
+            }
+            this.sampled = true;
         }
 
         public double getAvailability() {
-            if (this.availability.isEmpty()) {
+            if (!this.sampled) {
                 return 0.0;
             }
 
-            double total = this.availability.stream()
-                .mapToDouble((var p)->{return p.get0() * p.get1();})
-                .sum();
-
-            double totalTime = this.availability.stream()
-                .mapToDouble(Pair::get1)
-                .sum();
-
-            return total / totalTime;
+            return this.availableTime / this.totalTime;
         }
 
         @Override
@@ -100,7 +159,8 @@ public class Connection implements Component {
             this.requestsNumber = 0;
             this.served = 0;
             this.totalTime = 0;
-            this.availability.clear();
+            this.availableTime = 0;
+            this.sampled = false;
         }
 
         public double getTotalTime() {
@@ -128,6 +188,13 @@ public class Connection implements Component {
             return Connection.this.name;
         }
 
+        @Override
+        public List<Metric> getMetrics() {
+            return List.of(
+                new Metric(this.getName() + "_throughput", this::getThroughput),
+                new Metric(this.getName() + "_availability", this::getAvailability));
+        }
+
         public String toString() {
             return String.format(
                     "%s:{requests=%d, served=%d, throughput=%.2f, availability=%.2f}",
@@ -155,31 +222,97 @@ public class Connection implements Component {
         return this.name;
     }  
 
+    /*
+     * The predicator is code, it is described by its toString(), see
+     * NextRules.describe(), otherwise by identity like other suppliers
+     */
+    @Override
+    public String getDescription() {
+        return Component.super.getDescription()
+            + " rule=" + this.priority.getClass().getSimpleName()
+            + (this.priority.hasPredicator() ? " predicator=" + this.priority.getPredicator() : "")
+            + " scores=" + this.next.stream().map(p -> p.get1()).toList();
+    }
+
     public static abstract class NextRules {
         private Supplier<Boolean> predicator = () -> true;
+        private boolean hasPredicator = false;
+        private RandomGenerator random = null;
 
         public abstract Optional<Component> getNextChosen(ArrayList<Pair<Component, Long>> allNext);
 
         public Optional<Decimal6f> getLeftTime(ArrayList<Pair<Component, Long>> allNext) {
-            Decimal6f time = Decimal6f.MAX_VALUE;
+            long time = this.getLeftTimeTicks(allNext);
 
-            for (Pair<Component,Long> pair : allNext) {
-                var elem = pair.get0();
+            return time != IDLE
+                ? Optional.of(TimeBackend.toDecimal(time))
+                : Optional.empty();
+        }
 
-                if (elem.getLeftTime().isPresent()) {
-                    time = time.min(elem.getLeftTime().get());
-                } else {
-                    return  Optional.empty();
+        /*
+         * Busy only while all next components are busy
+         */
+        public long getLeftTimeTicks(ArrayList<Pair<Component, Long>> allNext) {
+            long time = BLOCKED;
+
+            for (int i = 0; i < allNext.size(); i++) {
+                long elemTime = allNext.get(i).get0().leftTimeTicks();
+
+                if (elemTime == IDLE) {
+                    return IDLE;
                 }
+
+                time = Math.min(time, elemTime);
             }
 
-            return time != Decimal6f.MAX_VALUE 
-                ? Optional.of(time)
-                : Optional.empty();
+            return time != BLOCKED
+                ? time
+                : IDLE;
+        }
+
+        /*
+         * Gives the predicator a description of what it checks, so models
+         * with the same one are described alike. The description has to
+         * change whenever the predicator does
+         */
+        public static Supplier<Boolean> describe(String description, Supplier<Boolean> predicator) {
+            return new Supplier<>() {
+                @Override
+                public Boolean get() {
+                    return predicator.get();
+                }
+
+                @Override
+                public String toString() {
+                    return description;
+                }
+            };
         }
 
         public void setPredicator(Supplier<Boolean> predicator) {
             this.predicator = predicator;
+            this.hasPredicator = true;
+        }
+
+        public Supplier<Boolean> getPredicator() {
+            return this.predicator;
+        }
+
+        public boolean hasPredicator() {
+            return this.hasPredicator;
+        }
+
+        public void setRandom(RandomGenerator random) {
+            this.random = random;
+        }
+
+        /*
+         * Generator of the connection, the one of the current thread if not set
+         */
+        protected RandomGenerator getRandom() {
+            return this.random != null
+                ? this.random
+                : ThreadLocalRandom.current();
         }
     }
 }
\ No newline at end of file
@@ -4,35 +4,48 @@ import java.util.function.Supplier;
 
 import org.decimal4j.immutable.Decimal6f;
 
+import com.example.modeling.utils.TimeBackend;
+
 public class Producer extends CompDevice {
 
+    /*
+     * The first request is drawn on the first run or update,
+     * after the producer is bound to the random streams of its model
+     */
     public Producer(Supplier<Double> rand, String name) {
         super(rand, name);
-
-        if (super.getLeftTime().isEmpty()) {
-            super.process();
-        }
     }
 
     @Override
     public void run(Decimal6f time) {
-        if (super.getLeftTime().isEmpty()) {
+        if (!super.isBusy()) {
             super.process();
         }
 
-        Decimal6f workTime = super.getLeftTime().get();
-        Decimal6f currentTime = time;
+        long workTime = super.leftTimeTicks();
+        long currentTime = TimeBackend.fromDecimal(time);
 
-        while (currentTime.isGreaterThanOrEqualTo(workTime)) {
-            super.run(workTime);
-            super.process();
+        while (currentTime >= workTime) {
+            super.run(TimeBackend.toDecimal(workTime));
 
-            currentTime = currentTime.subtract(workTime);
-            workTime = super.getLeftTime().get();
+            currentTime -= workTime;
+            workTime = super.leftTimeTicks();
         }
 
-        if (currentTime.isGreaterThan(Decimal6f.ZERO)) {
-            super.run(currentTime);
+        if (currentTime > 0) {
+            super.run(TimeBackend.toDecimal(currentTime));
+        }
+    }
+
+    /*
+     * Starts the next request as soon as the current one is done
+     */
+    @Override
+    public void update() {
+        super.update();
+
+        if (!super.isBusy()) {
+            super.process();
         }
     }
 }
@@ -1,37 +1,90 @@
 package com.example.modeling.components;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import org.decimal4j.immutable.Decimal6f;
 
-import com.example.modeling.utils.Pair;
+import com.example.modeling.utils.Histogram;
+import com.example.modeling.utils.Metric;
+import com.example.modeling.utils.TimeBackend;
 
+/*
+ * Counter queue. With entities tracked it also keeps the arrival times
+ * of the waiting requests in a ring buffer, oldest first, and records
+ * the exact wait of every request when it leaves
+ */
 public class Queue implements Component {
     protected final Stats stats = new Stats();
     protected final String name;
     
     protected long size = 0;
     protected Optional<Component> next = Optional.empty();
+    protected Clock clock = new Clock();
+    protected long lastTime = 0;
+
+    // ring buffer of arrival times, null for a plain counter
+    protected long[] arrivals = null;
+    protected int head = 0;
 
     public Queue(String name) {
+        this(name, false);
+    }
+
+    public Queue(String name, boolean trackEntities) {
         this.name = name;
+
+        if (trackEntities) {
+            this.arrivals = new long[16];
+        }
+    }
+
+    public boolean isTrackingEntities() {
+        return this.arrivals != null;
     }
 
     public void setNext(Component next) {
         this.next = Optional.of(next);
     }
 
+    @Override
+    public void replaceNext(Component next, Component replacement) {
+        if (this.next.isPresent() && this.next.get() == next) {
+            this.next = Optional.of(replacement);
+        }
+    }
+
     public long getSize() {
         return this.size;
     }
 
+    /*
+     * With entities tracked new requests arrive now
+     * and removed ones are the oldest, their waits are not recorded
+     */
     public void setSize(long newSize) {
-        this.size = newSize;
+        this.record();
+
+        if (this.arrivals == null) {
+            this.size = newSize;
+            return;
+        }
+
+        while (this.size < newSize) {
+            this.enqueue();
+        }
+        while (this.size > newSize) {
+            this.pop();
+            this.size--;
+        }
     }
 
     public void enqueue() {
+        if (this.arrivals != null) {
+            this.push(this.clock.now());
+        }
+
         this.size++;
     }
 
@@ -40,11 +93,107 @@ public class Queue implements Component {
             throw new IllegalStateException("Queue:" + this.name + ",size == 0"); 
         }
 
+        if (this.arrivals != null) {
+            TimeBackend time = this.clock.time();
+            this.stats.waitTimes.record(time.toDouble(time.subtract(this.clock.now(), this.pop())));
+        }
+
         this.size--;
     }
 
+    /*
+     * Arrival time of the i-th waiting request, the oldest is 0
+     */
+    protected long peekArrival(int i) {
+        return this.arrivals[(this.head + i) & (this.arrivals.length - 1)];
+    }
+
+    private void push(long time) {
+        if (this.size == this.arrivals.length) {
+            long[] grown = new long[this.arrivals.length * 2];
+
+            for (int i = 0; i < this.size; i++) {
+                grown[i] = this.peekArrival(i);
+            }
+
+            this.arrivals = grown;
+            this.head = 0;
+        }
+
+        this.arrivals[(int)((this.head + this.size) & (this.arrivals.length - 1))] = time;
+        // size is increased by the caller
+    }
+
+    private long pop() {
+        long time = this.arrivals[this.head];
+        this.head = (this.head + 1) & (this.arrivals.length - 1);
+
+        return time;
+    }
+
+    @Override
+    public void setClock(Clock clock) {
+        if (this.arrivals != null) {
+            for (int i = 0; i < this.size; i++) {
+                int index = (this.head + i) & (this.arrivals.length - 1);
+                long age = this.clock.time().subtract(this.clock.now(), this.arrivals[index]);
+
+                this.arrivals[index] = clock.time().subtract(clock.now(), age);
+            }
+        }
+
+        this.clock = clock;
+        this.lastTime = clock.now();
+    }
+
+    /*
+     * The size, followed by the age of every waiting request if tracked
+     */
+    @Override
+    public long[] getState() {
+        if (this.arrivals == null) {
+            return new long[] { this.size };
+        }
+
+        long[] state = new long[(int)this.size + 1];
+        state[0] = this.size;
+
+        for (int i = 0; i < this.size; i++) {
+            state[i + 1] = this.clock.time().subtract(this.clock.now(), this.peekArrival(i));
+        }
+
+        return state;
+    }
+
+    @Override
+    public void setState(long[] state) {
+        this.lastTime = this.clock.now();
+        this.size = 0;
+
+        if (this.arrivals != null) {
+            this.head = 0;
+
+            for (int i = 0; i < state[0]; i++) {
+                this.push(i + 1 < state.length
+                    ? this.clock.time().subtract(this.clock.now(), state[i + 1])
+                    : this.clock.now());
+                this.size++;
+            }
+        }
+
+        this.size = state[0];
+    }
+
+    @Override
+    public boolean needsPolling() {
+        return this.next.isPresent() && this.size > 0;
+    }
+
     @Override
     public boolean process() {
+        this.clock.touch(this);
+        this.record();
+
         this.stats.addRequest();
         this.enqueue();
 
@@ -52,20 +201,36 @@ public class Queue implements Component {
         return true;
     }
 
-    /*
-     * Records queue size over time
-     */
     @Override
     public void run(Decimal6f time) {
-        this.stats.record(time.doubleValue());
+        this.clock.advance(TimeBackend.fromDecimal(time));
+        this.update();
+    }
+
+    @Override
+    public void update() {
+        this.record();
         tryServe();
     }
 
-    private void tryServe() {
+    /*
+     * Records queue size over the time since the last record
+     */
+    protected void record() {
+        TimeBackend time = this.clock.time();
+        long now = this.clock.now();
+
+        if (time.compare(now, this.lastTime) > 0) {
+            this.stats.record(time.toDouble(time.subtract(now, this.lastTime)));
+            this.lastTime = now;
+        }
+    }
+
+    protected void tryServe() {
         if (this.next.isPresent()) {
             var next = this.next.get();
 
-            while (next.getLeftTime().isEmpty() && this.size > 0) {
+            while (!next.isBusy() && this.size > 0) {
                 if (next.process() == false) {
                     throw new IllegalStateException("Can't process!");
                 }
@@ -77,8 +242,8 @@ public class Queue implements Component {
     }
 
     @Override
-    public Optional<Decimal6f> getLeftTime() {
-        return Optional.empty();
+    public long leftTimeTicks() {
+        return IDLE;
     }
 
     @Override
@@ -103,20 +268,76 @@ public class Queue implements Component {
         return this.name;
     }
 
+    @Override
+    public String getDescription() {
+        return Component.super.getDescription() + (this.arrivals != null ? " tracked" : "");
+    }
+
+    /*
+     * Time-weighted accumulators of the queue size: time spent at every size
+     * and the area under the batch count curve of the registered batch sizes
+     */
     public class Stats implements ComponentStats {
-        private ArrayList<Pair<Long, Double>> queueSizies = new ArrayList<>();
+        private final Histogram waitTimes = new Histogram(Histogram.TIME_UNIT);
+        private final Histogram batchTimes = new Histogram(Histogram.TIME_UNIT);
+
+        private double[] timeAtSize = new double[8];
+        private int[] batchSizes = { 1, 2 };
+        private double[] batchAreas = new double[2];
+
+        private double totalTime = 0;
+        private long maxSize = 0;
+        private long records = 0;
         private long requests = 0;
         private long served = 0;
 
         @Override
         public void clear() {
-            this.queueSizies.clear();
+            Arrays.fill(this.timeAtSize, 0);
+            Arrays.fill(this.batchAreas, 0);
+            this.waitTimes.clear();
+            this.batchTimes.clear();
+
+            this.totalTime = 0;
+            this.maxSize = 0;
+            this.records = 0;
             this.requests = 0;
             this.served = 0;
         }
 
         public void record(double time) {
-            this.queueSizies.add(Pair.createPair(Queue.this.size, time));
+            long size = Queue.this.size;
+
+            if (size >= this.timeAtSize.length) {
+                this.timeAtSize = Arrays.copyOf(this.timeAtSize, (int)Math.max(size + 1, this.timeAtSize.length * 2));
+            }
+            this.timeAtSize[(int)size] += time;
+
+            for (int i = 0; i < this.batchSizes.length; i++) {
+                this.batchAreas[i] += (double)(size / this.batchSizes[i]) * time;
+            }
+
+            this.totalTime += time;
+            this.maxSize = Math.max(this.maxSize, size);
+            this.records++;
+        }
+
+        /*
+         * Keeps an O(1) accumulator for the batch size, the area gathered
+         * so far is restored from the time spent at every size
+         */
+        public void registerBatchSize(int batchSize) {
+            for (int size : this.batchSizes) {
+                if (size == batchSize) {
+                    return;
+                }
+            }
+
+            this.batchSizes = Arrays.copyOf(this.batchSizes, this.batchSizes.length + 1);
+            this.batchAreas = Arrays.copyOf(this.batchAreas, this.batchAreas.length + 1);
+
+            this.batchSizes[this.batchSizes.length - 1] = batchSize;
+            this.batchAreas[this.batchAreas.length - 1] = this.getAreaFromSizes(batchSize);
         }
 
         public long getServed() {
@@ -127,6 +348,45 @@ public class Queue implements Component {
             return this.requests;
         }
 
+        public long getMaxSize() {
+            return this.maxSize;
+        }
+
+        public double getTimeAtSize(long size) {
+            return size < this.timeAtSize.length
+                ? this.timeAtSize[(int)size]
+                : 0.0;
+        }
+
+        /*
+         * Time-weighted distribution of the queue size
+         */
+        public Histogram getSizeHistogram() {
+            var histogram = new Histogram(1);
+
+            for (int size = 0; size <= this.maxSize; size++) {
+                histogram.record(size, this.timeAtSize[size]);
+            }
+
+            return histogram;
+        }
+
+        /*
+         * Exact waits of the requests that left the queue,
+         * empty unless entities are tracked
+         */
+        public Histogram getWaitTimes() {
+            return this.waitTimes;
+        }
+
+        /*
+         * Times batches took to form, from the arrival of their first
+         * request to the arrival of the last one, for batching queues
+         */
+        public Histogram getBatchTimes() {
+            return this.batchTimes;
+        }
+
         public void addRequest() {
             this.requests += 1;
         }
@@ -136,15 +396,23 @@ public class Queue implements Component {
         }
 
         public double getTotalBatchWaitTime(int batchSize) {
-            return this.queueSizies.stream()
-                    .mapToDouble(pair -> {
-                        long size = pair.get0();
-                        double time = pair.get1();
+            for (int i = 0; i < this.batchSizes.length; i++) {
+                if (this.batchSizes[i] == batchSize) {
+                    return this.batchAreas[i];
+                }
+            }
+
+            return this.getAreaFromSizes(batchSize);
+        }
+
+        private double getAreaFromSizes(int batchSize) {
+            double area = 0;
 
-                        long batchCount = size / batchSize;
-                        return (double)batchCount * time;
-                    })
-                    .sum();
+            for (int size = 0; size <= this.maxSize; size++) {
+                area += (double)(size / batchSize) * this.timeAtSize[size];
+            }
+
+            return area;
         }
 
         public double getAvgBatchWaitTime(int batchSize) {
@@ -155,17 +423,11 @@ public class Queue implements Component {
         }
 
         public double getAverageBatchQueueSize(int batchSize) {
-            if (this.queueSizies.isEmpty()) {
+            if (this.records == 0) {
                 return 0.0;
             }
 
-            double total = this.getTotalBatchWaitTime(batchSize);
-
-            double totalTime = this.queueSizies.stream()
-                    .mapToDouble(Pair::get1)
-                    .sum();
-
-            return total / totalTime;
+            return this.getTotalBatchWaitTime(batchSize) / this.totalTime;
         }
 
         public double getAverageQueueSize() {
@@ -184,6 +446,17 @@ public class Queue implements Component {
             return Queue.this.name;
         }
 
+        @Override
+        public List<Metric> getMetrics() {
+            return List.of(
+                new Metric(this.getName() + "_avg_sz", this::getAverageQueueSize),
+                new Metric(this.getName() + "_avg_wt", this::getAvgWaitTime),
+                new Metric(this.getName() + "_pair_avg_sz", () -> this.getAverageBatchQueueSize(2)),
+                new Metric(this.getName() + "_pair_avg_wt", () -> this.getAvgBatchWaitTime(2)),
+                new Metric(this.getName() + "_served", this::getServed),
+                new Metric(this.getName() + "_total_wait_time", this::getTotalWaitTime));
+        }
+
         public String toString() {
             return String.format(
                     "%s:{averageQueueSize=%.2f, requests=%d, served=%d, totalWaitTime=%.2f, avgWaitTime=%.2f}",
@@ -1,63 +1,152 @@
 package com.example.modeling.components.device;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.SplittableRandom;
 import java.util.function.Supplier;
 
 import org.decimal4j.immutable.Decimal6f;
 
+import com.example.modeling.components.Clock;
+import com.example.modeling.components.Component;
 import com.example.modeling.components.Component.ComponentStats;
-
+import com.example.modeling.utils.FunRand;
+import com.example.modeling.utils.Histogram;
+import com.example.modeling.utils.Metric;
+import com.example.modeling.utils.TimeBackend;
+
+/*
+ * Keeps the absolute time its work finishes at against a clock,
+ * busy and idle time are added to the stats lazily on update()
+ */
 public class Device {
+    static final long IDLE = Long.MIN_VALUE;
+
     final Supplier<Double> rand;
     final Stats stats;
     final String name;
 
-    Decimal6f currentTime;
-    Optional<Decimal6f> requiredTime;
+    SplittableRandom random = null;
+    Clock clock;
+    long lastTime;
+    long finishTime;
+    long workTicks;
 
     public Device(Supplier<Double> rand, String name) {
         this.rand = rand;
 
-        this.currentTime = Decimal6f.ZERO;
-        this.requiredTime = Optional.empty();
+        this.clock = new Clock();
+        this.lastTime = 0;
+        this.finishTime = IDLE;
+        this.workTicks = Component.IDLE;
 
         this.stats = new Stats();
         this.name = name;
     }
 
+    /*
+     * Moves the device to another clock keeping the work time left
+     */
+    public void setClock(Clock clock) {
+        if (this.finishTime != IDLE) {
+            long left = this.clock.time().subtract(this.finishTime, this.clock.now());
+            this.finishTime = clock.time().add(clock.now(), left);
+        }
+
+        this.lastTime = clock.now();
+        this.clock = clock;
+    }
+
+    /*
+     * Stream the work times are drawn from, the generator of the current
+     * thread if not set. Every draw takes its own substream, so the k-th
+     * work time comes from the same numbers whatever the distribution is,
+     * which keeps variants of a model on common random numbers
+     */
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
+    public Supplier<Double> getDistribution() {
+        return this.rand;
+    }
+
     public Optional<Decimal6f> getWorkTime() {
-        return Optional.ofNullable(requiredTime
-                .map(t -> t.subtract(this.currentTime))
-                .orElse(null));
+        return this.finishTime != IDLE
+            ? Optional.of(TimeBackend.toDecimal(this.getWorkTicks()))
+            : Optional.empty();
     };
 
+    /*
+     * Returns Component.IDLE if device is not busy
+     */
+    public long getWorkTicks() {
+        return this.finishTime != IDLE
+            ? this.clock.time().subtract(this.finishTime, this.clock.now())
+            : Component.IDLE;
+    }
+
+    /*
+     * Restarts the device at the current time of its clock with the given
+     * work time left, Component.IDLE for a free device
+     */
+    public void setWorkTicks(long ticks) {
+        this.lastTime = this.clock.now();
+        this.finishTime = ticks != Component.IDLE
+            ? this.clock.time().add(this.clock.now(), ticks)
+            : IDLE;
+
+        // the restored work didn't start here, its service time is unknown
+        this.workTicks = Component.IDLE;
+    }
+
     /*
      * Throws exception if device is not busy
      */
     public boolean run(Decimal6f time) {
+        if (this.finishTime == IDLE) {
+            throw new IllegalStateException("Device is not busy");
+        }
+
+        this.clock.advance(TimeBackend.fromDecimal(time));
+        return this.update();
+    }
+
+    /*
+     * Accounts the time passed since the last update,
+     * returns true if the work finished meanwhile
+     */
+    public boolean update() {
+        TimeBackend time = this.clock.time();
+        long now = this.clock.now();
         boolean done = false;
 
-        if (this.requiredTime.isPresent()) {
-            var t = this.requiredTime.get();
+        if (this.finishTime != IDLE && time.compare(this.finishTime, now) <= 0) {
+            long t = this.finishTime;
+            done = true;
 
-            this.currentTime = this.currentTime.add(time);
+            // stats
+            this.stats.addServed();
+            if (this.workTicks != Component.IDLE) {
+                this.stats.serviceTimes.record(time.toDouble(this.workTicks));
+            }
+            this.stats.addBusyTime(time.toDouble(time.subtract(t, this.lastTime)));
+            this.lastTime = t;
 
-            if (this.currentTime.isGreaterThanOrEqualTo(t)) {
-                done = true;
+            // change state
+            this.finishTime = IDLE;
+        }
 
-                // stats
-                this.stats.addServed();
-                this.stats.addBusyTime(t.subtract(this.currentTime.subtract(time)).doubleValue());
-                this.stats.addWaitTime(this.currentTime.subtract(t).doubleValue());
+        if (time.compare(now, this.lastTime) > 0) {
+            double dt = time.toDouble(time.subtract(now, this.lastTime));
 
-                // change state
-                this.currentTime = Decimal6f.ZERO;
-                this.requiredTime = Optional.empty();
+            if (this.finishTime != IDLE) {
+                this.stats.addBusyTime(dt);
             } else {
-                this.stats.addBusyTime(time.doubleValue());
+                this.stats.addWaitTime(dt);
             }
-        } else {
-            throw new IllegalStateException("Device is not busy");
+
+            this.lastTime = now;
         }
 
         return done;
@@ -67,31 +156,36 @@ public class Device {
      * Throws exception if device is busy
      */
     public void wait(Decimal6f time) {
-        this.requiredTime.ifPresentOrElse(t -> {
+        if (this.finishTime != IDLE) {
             throw new IllegalStateException(
-                "Device is busy. Required time left: " + t.subtract(this.currentTime));
-        }, () -> {
-            this.stats.addWaitTime(time.doubleValue());
-        });
+                "Device is busy. Required time left: " + this.getWorkTime().get());
+        }
+
+        this.clock.advance(TimeBackend.fromDecimal(time));
+        this.update();
     }
 
     /*
      * Throws exception if device is busy
      */
     public void process() {
-        if (this.requiredTime.isPresent()) {
+        if (this.finishTime != IDLE) {
             throw new IllegalStateException(
-                name + " is busy, Required time left: " + (this.requiredTime.get().subtract( this.currentTime)));
+                name + " is busy, Required time left: " + this.getWorkTime().get());
         } else {
-            Decimal6f num = Decimal6f.valueOf(this.rand.get());
-            if (num.isLessThanOrEqualTo(Decimal6f.ZERO)) {
+            this.update();
+
+            TimeBackend time = this.clock.time();
+            SplittableRandom r = this.random != null ? this.random.split() : null;
+            long num = time.fromDouble(FunRand.sample(this.rand, r));
+            if (num <= 0) {
                 throw new IllegalStateException(
                     "Invalid rand generator: generated value is less or equal 0. Device name: " + this.name
                 );
             }
 
-            this.requiredTime = Optional.of(num);
-            this.currentTime = Decimal6f.ZERO;
+            this.finishTime = time.add(this.clock.now(), num);
+            this.workTicks = num;
         }
     }
 
@@ -103,12 +197,21 @@ public class Device {
         private double busyTime = 0;
         private double totalTime = 0;
         private long served = 0;
+        private final Histogram serviceTimes = new Histogram(Histogram.TIME_UNIT);
 
         @Override
         public void clear() {
             this.busyTime = 0;
             this.totalTime = 0;
             this.served = 0;
+            this.serviceTimes.clear();
+        }
+
+        /*
+         * Distribution of the work times of the served requests
+         */
+        public Histogram getServiceTimes() {
+            return this.serviceTimes;
         }
 
         public double getBusyTime() {
@@ -146,6 +249,13 @@ public class Device {
             return Device.this.name;
         }
 
+        @Override
+        public List<Metric> getMetrics() {
+            return List.of(
+                new Metric(this.getName() + "_utilization", this::getUtilization),
+                new Metric(this.getName() + "_served", this::getServed));
+        }
+
         public String toString() {
             String format = "%s:{busy_time=%.2f, total_time=%.2f, utilization=%.2f, served=%d}";
 
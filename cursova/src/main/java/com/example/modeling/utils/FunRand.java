@@ -1,13 +1,59 @@
 package com.example.modeling.utils;
 
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
 
 public class FunRand {
-    private static Random r = new Random();
+
+    /*
+     * Distribution that can draw from a given generator. Called as a plain
+     * supplier it draws from the generator of the current thread
+     */
+    @FunctionalInterface
+    public interface Distribution extends Supplier<Double> {
+        double sample(RandomGenerator r);
+
+        @Override
+        default Double get() {
+            return this.sample(ThreadLocalRandom.current());
+        }
+    }
+
+    /*
+     * Draws from the given generator if the supplier is a distribution,
+     * falls back to the supplier itself otherwise or without a generator
+     */
+    public static double sample(Supplier<Double> rand, RandomGenerator r) {
+        return r != null && rand instanceof Distribution d
+            ? d.sample(r)
+            : rand.get();
+    }
+
+    /*
+     * Gives the distribution a description of its parameters,
+     * used to tell apart the levels of experiment factors
+     */
+    public static Distribution describe(String description, Distribution distribution) {
+        return new Distribution() {
+            @Override
+            public double sample(RandomGenerator r) {
+                return distribution.sample(r);
+            }
+
+            @Override
+            public String toString() {
+                return description;
+            }
+        };
+    }
 
     public static double nextRandom() {
+        return nextRandom(ThreadLocalRandom.current());
+    }
+
+    public static double nextRandom(RandomGenerator r) {
         double n = r.nextDouble();
         while (n == 0.0) {
             n = r.nextDouble();
@@ -16,49 +62,49 @@ public class FunRand {
         return n;
     }
 
-    public static Supplier<Double> getFixed(double num) {
-        return () -> num;
+    public static Distribution getFixed(double num) {
+        return describe("Fixed(" + num + ")", r -> num);
     }
 
-    public static Supplier<Double> getNotNullNorm(double mean, double std) {
-        return () -> {
+    public static Distribution getNotNullNorm(double mean, double std) {
+        return describe("NotNullNorm(" + mean + ", " + std + ")", r -> {
             double n = r.nextGaussian(mean, std);
             while (n <= 0) {
                 n = r.nextGaussian(mean, std);
             }
             return n;
-        };
+        });
     }
 
-    public static Supplier<Double> getUniform(double from, double to) {
+    public static Distribution getUniform(double from, double to) {
         if (to <= from) 
             throw new IllegalArgumentException("Upper bound must be greater than lower bound");
 
-        return () -> from + (to - from) * r.nextDouble();
+        return describe("Uniform(" + from + ", " + to + ")", r -> from + (to - from) * r.nextDouble());
     }
 
-    public static Supplier<Double> getExponential(double mean) {
-        return () -> {
-            return -mean * Math.log(nextRandom());
-        };
+    public static Distribution getExponential(double mean) {
+        return describe("Exponential(" + mean + ")", r -> {
+            return -mean * Math.log(nextRandom(r));
+        });
     }
 
-    public static Supplier<Double> getCombined(List<Supplier<Double>> lst) {
+    public static Distribution getCombined(List<Supplier<Double>> lst) {
         if (lst.isEmpty())
             throw new IllegalArgumentException("List must be not empty");
 
-        return () -> {
+        return describe("Combined" + lst, r -> {
             double t = 0;
 
             for (var elem : lst) {
-                t += elem.get();
+                t += sample(elem, r);
             }
 
             return t;
-        };
+        });
     }
  
-    public static Supplier<Double> getErlang(double mean, double var) {
+    public static Distribution getErlang(double mean, double var) {
         if (var <= 0 || mean <= 0) 
             throw new IllegalArgumentException("Mean and variance must be positive");
 
@@ -67,13 +113,13 @@ public class FunRand {
 
         final double lam = (double)k / mean;
 
-        return () -> {
+        return describe("Erlang(" + mean + ", " + var + ")", r -> {
             double sum = 0.0;
 
             for (int i = 0; i < k; i++) {
-                sum += -Math.log(nextRandom()) / lam;
+                sum += -Math.log(nextRandom(r)) / lam;
             }
             return sum;
-        };
+        });
     }
 }
@@ -0,0 +1,204 @@
+package com.example.modeling.utils;
+
+import java.util.Arrays;
+
+/*
+ * Weighted histogram of non-negative values with log-linear buckets,
+ * like an HDR histogram. Values are counted in units of the given size:
+ * the first 2^precisionBits units have a bucket each, above that every
+ * power of two is split into 2^(precisionBits - 1) buckets, so a value
+ * is kept with a relative error below 2^-(precisionBits - 1).
+ * Memory depends on the largest value only, not on the number of records,
+ * and histograms of the same layout can be merged, e.g. over replications.
+ */
+public class Histogram {
+    /*
+     * Resolution of the time histograms of the components
+     */
+    public static final double TIME_UNIT = 0.001;
+
+    private final double unit;
+    private final int precisionBits;
+    private final int subBuckets;
+
+    private double[] counts = new double[0];
+    private double totalWeight = 0;
+    private double weightedSum = 0;
+    private double min = Double.MAX_VALUE;
+    private double max = 0;
+
+    public Histogram(double unit) {
+        this(unit, 6);
+    }
+
+    public Histogram(double unit, int precisionBits) {
+        if (unit <= 0 || precisionBits < 1 || precisionBits > 16) {
+            throw new IllegalArgumentException("Unit must be positive, precision bits between 1 and 16");
+        }
+
+        this.unit = unit;
+        this.precisionBits = precisionBits;
+        this.subBuckets = 1 << precisionBits;
+    }
+
+    public void record(double value) {
+        this.record(value, 1.0);
+    }
+
+    /*
+     * Adds a value with the given weight, e.g. the time a queue had that size
+     */
+    public void record(double value, double weight) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must be non-negative: " + value);
+        }
+
+        if (weight <= 0) {
+            return;
+        }
+
+        int index = this.indexOf((long)(value / this.unit));
+
+        if (index >= this.counts.length) {
+            this.counts = Arrays.copyOf(this.counts, Math.max(index + 1, this.counts.length * 2));
+        }
+        this.counts[index] += weight;
+
+        this.totalWeight += weight;
+        this.weightedSum += value * weight;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+    }
+
+    public void merge(Histogram other) {
+        if (other.unit != this.unit || other.precisionBits != this.precisionBits) {
+            throw new IllegalArgumentException("Histograms have different layouts");
+        }
+
+        if (other.counts.length > this.counts.length) {
+            this.counts = Arrays.copyOf(this.counts, other.counts.length);
+        }
+
+        for (int i = 0; i < other.counts.length; i++) {
+            this.counts[i] += other.counts[i];
+        }
+
+        this.totalWeight += other.totalWeight;
+        this.weightedSum += other.weightedSum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    public void clear() {
+        Arrays.fill(this.counts, 0);
+
+        this.totalWeight = 0;
+        this.weightedSum = 0;
+        this.min = Double.MAX_VALUE;
+        this.max = 0;
+    }
+
+    public double getTotalWeight() {
+        return this.totalWeight;
+    }
+
+    public double getMean() {
+        return this.totalWeight != 0
+            ? this.weightedSum / this.totalWeight
+            : 0.0;
+    }
+
+    public double getMin() {
+        return this.totalWeight != 0
+            ? this.min
+            : 0.0;
+    }
+
+    public double getMax() {
+        return this.max;
+    }
+
+    /*
+     * Smallest recorded value (up to the bucket precision) such that
+     * the given share of the weight lies at or below it, 0 if empty
+     */
+    public double getQuantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]: " + q);
+        }
+
+        if (this.totalWeight == 0) {
+            return 0.0;
+        }
+
+        // the maximum is kept exactly
+        if (q == 1) {
+            return this.max;
+        }
+
+        double target = q * this.totalWeight;
+        double cumulative = 0;
+
+        for (int i = 0; i < this.counts.length; i++) {
+            cumulative += this.counts[i];
+
+            if (this.counts[i] > 0 && cumulative >= target) {
+                double value = this.valueOf(i) * this.unit;
+                return Math.min(Math.max(value, this.min), this.max);
+            }
+        }
+
+        return this.max;
+    }
+
+    public double getP50() {
+        return this.getQuantile(0.50);
+    }
+
+    public double getP95() {
+        return this.getQuantile(0.95);
+    }
+
+    public double getP99() {
+        return this.getQuantile(0.99);
+    }
+
+    private int indexOf(long units) {
+        if (units < this.subBuckets) {
+            return (int)units;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(units) - this.precisionBits + 1;
+        int half = this.subBuckets / 2;
+
+        return this.subBuckets + (shift - 1) * half + (int)((units >> shift) - half);
+    }
+
+    /*
+     * Middle of the bucket in units
+     */
+    private double valueOf(int index) {
+        if (index < this.subBuckets) {
+            return index;
+        }
+
+        int half = this.subBuckets / 2;
+        int shift = (index - this.subBuckets) / half + 1;
+        long top = (index - this.subBuckets) % half + half;
+
+        long low = top << shift;
+        long high = ((top + 1) << shift) - 1;
+
+        return (low + high) / 2.0;
+    }
+
+    public String toString() {
+        return String.format(
+                "{mean=%.2f, p50=%.2f, p95=%.2f, p99=%.2f, max=%.2f}",
+                this.getMean(),
+                this.getP50(),
+                this.getP95(),
+                this.getP99(),
+                this.getMax());
+    }
+}
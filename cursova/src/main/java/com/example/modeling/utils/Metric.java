@@ -0,0 +1,24 @@
+package com.example.modeling.utils;
+
+import java.util.function.DoubleSupplier;
+
+/*
+ * Named value of component stats, exported as a column per replication
+ */
+public class Metric {
+    private final String name;
+    private final DoubleSupplier value;
+
+    public Metric(String name, DoubleSupplier value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public double get() {
+        return this.value.getAsDouble();
+    }
+}
@@ -1,32 +1,34 @@
 package com.example.modeling.utils;
 
 import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 
-import java.util.stream.Collectors;
-
 import com.example.modeling.components.Component;
 import com.example.modeling.components.Connection.NextRules;
 
 public final class NextRulesImpl {
 
+    /*
+     * Chooses the free component with the highest score,
+     * the last added one among equal scores
+     */
     public static class Priority extends NextRules {
 
         @Override
         public Optional<Component> getNextChosen(ArrayList<Pair<Component, Long>> arr) {
-            arr.sort((a,b)-> Long.compare(a.get1(), b.get1()));
+            Component chosen = null;
+            long best = Long.MIN_VALUE;
 
-            List<Pair<Component, Long>> next = arr.stream()
-                .filter(e -> e.get0().getLeftTime().isEmpty())
-                .collect(Collectors.toList())
-                .reversed();
-            
-            if (next.isEmpty()) {
-                return Optional.empty();
-            } else {
-                return Optional.of(next.getFirst().get0());
+            for (int i = 0; i < arr.size(); i++) {
+                var pair = arr.get(i);
+
+                if (!pair.get0().isBusy() && pair.get1() >= best) {
+                    chosen = pair.get0();
+                    best = pair.get1();
+                }
             }
+
+            return Optional.ofNullable(chosen);
         }
     }
 
@@ -34,26 +36,36 @@ public final class NextRulesImpl {
 
         @Override
         public Optional<Component> getNextChosen(ArrayList<Pair<Component, Long>> arr) {
-            List<Pair<Component, Long>> next = arr.stream()
-                .filter(e -> e.get0().getLeftTime().isEmpty())
-                .collect(Collectors.toList());
+            long total = 0;
+            boolean found = false;
+
+            for (int i = 0; i < arr.size(); i++) {
+                var pair = arr.get(i);
+
+                if (!pair.get0().isBusy()) {
+                    total += pair.get1();
+                    found = true;
+                }
+            }
             
-            if (next.isEmpty()) {
+            if (!found) {
                 return Optional.empty();
             }
-            
-            Long total = next.stream()
-                    .mapToLong(p -> p.get1().longValue())
-                    .sum();
 
-            double r = Math.random() * total;
+            double r = this.getRandom().nextDouble() * total;
             double cumulative = 0.0;
 
-            for (Pair<Component, Long> p : next) {
-                cumulative += p.get1().doubleValue();
+            for (int i = 0; i < arr.size(); i++) {
+                var pair = arr.get(i);
+
+                if (pair.get0().isBusy()) {
+                    continue;
+                }
+
+                cumulative += pair.get1().doubleValue();
                 
                 if (r <= cumulative) {
-                    return Optional.of(p.get0());
+                    return Optional.of(pair.get0());
                 }
             }
 
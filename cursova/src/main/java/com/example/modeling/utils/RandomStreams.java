@@ -0,0 +1,50 @@
+package com.example.modeling.utils;
+
+import java.util.HashMap;
+import java.util.SplittableRandom;
+
+/*
+ * Random streams of one model replication. Every named component gets its
+ * own generator whose seed depends only on the master seed and the name,
+ * so a stream doesn't change when components are added, removed or
+ * created in another order, and the same name draws the same numbers
+ * in every model seeded alike.
+ * Streams are not thread-safe: a model is run by one thread at a time.
+ */
+public class RandomStreams {
+    private final HashMap<String, SplittableRandom> streams = new HashMap<>();
+    private final long seed;
+
+    public RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public SplittableRandom get(String name) {
+        return this.streams.computeIfAbsent(name, key -> new SplittableRandom(mix(this.seed, key)));
+    }
+
+    /*
+     * 64-bit FNV-1a hash of the name, then a murmur3 finalizer
+     * to spread seeds that differ in a few bits
+     */
+    private static long mix(long seed, String name) {
+        long h = 0xcbf29ce484222325L ^ seed;
+
+        for (int i = 0; i < name.length(); i++) {
+            h ^= name.charAt(i);
+            h *= 0x100000001b3L;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.modeling.utils;
+
+import org.decimal4j.api.DecimalArithmetic;
+import org.decimal4j.immutable.Decimal6f;
+
+/*
+ * Arithmetic on model time kept as unscaled Decimal6f values (ticks of 1e-6).
+ * TICKS works on the primitives, DECIMAL goes through Decimal6f objects and
+ * is kept to compare against. Both give exactly the same results.
+ */
+public enum TimeBackend {
+    TICKS {
+        @Override
+        public long fromDouble(double time) {
+            return ARITHMETIC.fromDouble(time);
+        }
+
+        @Override
+        public double toDouble(long time) {
+            return ARITHMETIC.toDouble(time);
+        }
+
+        @Override
+        public long add(long a, long b) {
+            return a + b;
+        }
+
+        @Override
+        public long subtract(long a, long b) {
+            return a - b;
+        }
+
+        @Override
+        public int compare(long a, long b) {
+            return Long.compare(a, b);
+        }
+    },
+
+    DECIMAL {
+        @Override
+        public long fromDouble(double time) {
+            return Decimal6f.valueOf(time).unscaledValue();
+        }
+
+        @Override
+        public double toDouble(long time) {
+            return Decimal6f.valueOfUnscaled(time).doubleValue();
+        }
+
+        @Override
+        public long add(long a, long b) {
+            return Decimal6f.valueOfUnscaled(a)
+                .add(Decimal6f.valueOfUnscaled(b))
+                .unscaledValue();
+        }
+
+        @Override
+        public long subtract(long a, long b) {
+            return Decimal6f.valueOfUnscaled(a)
+                .subtract(Decimal6f.valueOfUnscaled(b))
+                .unscaledValue();
+        }
+
+        @Override
+        public int compare(long a, long b) {
+            return Decimal6f.valueOfUnscaled(a).compareTo(Decimal6f.valueOfUnscaled(b));
+        }
+    };
+
+    private static final DecimalArithmetic ARITHMETIC = Decimal6f.METRICS.getDefaultArithmetic();
+
+    public abstract long fromDouble(double time);
+    public abstract double toDouble(long time);
+
+    public abstract long add(long a, long b);
+    public abstract long subtract(long a, long b);
+    public abstract int compare(long a, long b);
+
+    public static long fromDecimal(Decimal6f time) {
+        return time.unscaledValue();
+    }
+
+    public static Decimal6f toDecimal(long time) {
+        return Decimal6f.valueOfUnscaled(time);
+    }
+}
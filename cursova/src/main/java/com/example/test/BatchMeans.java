@@ -0,0 +1,288 @@
+package com.example.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.example.modeling.Model;
+
+/*
+ * Steady-state estimates from a single long run. The model is warmed up
+ * once, then run for nIntervals intervals with the metrics taken after
+ * every one. Neighbouring intervals are merged into batches, doubling
+ * the batch size while the lag-1 autocorrelation of some metric's batch
+ * means is above MAX_AUTOCORRELATION, and the confidence intervals are
+ * built from the batch means as if they were independent replications.
+ * Metrics are averaged over the intervals of a batch, so counts such as
+ * served are given per interval, and averages per request are averages
+ * of the intervals' ones, which needs intervals holding many requests.
+ */
+public class BatchMeans {
+    static final double MAX_AUTOCORRELATION = 0.2;
+    static final int MIN_BATCHES = 20;
+
+    private final double interval;
+    private final int nIntervals;
+
+    public BatchMeans(double interval, int nIntervals) {
+        if (interval <= 0 || nIntervals < MIN_BATCHES) {
+            throw new IllegalArgumentException(
+                "Interval must be positive, number of intervals at least " + MIN_BATCHES);
+        }
+
+        this.interval = interval;
+        this.nIntervals = nIntervals;
+    }
+
+    public Result run(Supplier<Model> init, long seed, double preRunTime, double level) {
+        var model = init.get();
+        model.setSeed(seed);
+        model.run(preRunTime);
+
+        double[][] rows = model.runBatches(this.interval, this.nIntervals);
+
+        var names = new ArrayList<String>();
+        var series = new ArrayList<double[]>();
+        var allNames = model.getSchema().getNames();
+
+        for (int m = 0; m < allNames.size(); m++) {
+            // the time of the model only grows, it is not a metric of the batches
+            if (allNames.get(m).equals("total_time")) {
+                continue;
+            }
+
+            double[] values = new double[rows.length];
+
+            for (int i = 0; i < rows.length; i++) {
+                values[i] = rows[i][m];
+            }
+
+            names.add(allNames.get(m));
+            series.add(values);
+        }
+
+        int batchSize = batchSize(series);
+        int nBatches = this.nIntervals / batchSize;
+        boolean correlated = worstLag1(series, batchSize) > MAX_AUTOCORRELATION;
+        double t = studentQuantile(0.5 + level / 2, nBatches - 1);
+
+        double[] means = new double[names.size()];
+        double[] halfWidths = new double[names.size()];
+
+        for (int m = 0; m < names.size(); m++) {
+            double[] batches = batch(series.get(m), batchSize);
+
+            double mean = 0;
+            for (double value : batches) {
+                mean += value;
+            }
+            mean /= nBatches;
+
+            double variance = 0;
+            for (double value : batches) {
+                variance += (value - mean) * (value - mean);
+            }
+            variance /= nBatches - 1;
+
+            means[m] = mean;
+            halfWidths[m] = t * Math.sqrt(variance / nBatches);
+        }
+
+        return new Result(names, means, halfWidths, batchSize * this.interval, nBatches, correlated);
+    }
+
+    /*
+     * Smallest power of two number of intervals per batch with the
+     * lag-1 autocorrelation of every series within the limit, or the
+     * largest one keeping at least MIN_BATCHES batches if none is
+     */
+    int batchSize(List<double[]> series) {
+        int size = 1;
+
+        while (worstLag1(series, size) > MAX_AUTOCORRELATION
+                && this.nIntervals / (size * 2) >= MIN_BATCHES) {
+            size *= 2;
+        }
+
+        return size;
+    }
+
+    static double worstLag1(List<double[]> series, int size) {
+        double worst = 0;
+
+        for (double[] values : series) {
+            worst = Math.max(worst, lag1(batch(values, size)));
+        }
+
+        return worst;
+    }
+
+    /*
+     * Means of consecutive batches, the incomplete last one is dropped
+     */
+    static double[] batch(double[] series, int size) {
+        double[] batches = new double[series.length / size];
+
+        for (int b = 0; b < batches.length; b++) {
+            double sum = 0;
+
+            for (int i = 0; i < size; i++) {
+                sum += series[b * size + i];
+            }
+
+            batches[b] = sum / size;
+        }
+
+        return batches;
+    }
+
+    /*
+     * Lag-1 autocorrelation, 0 for a constant series
+     */
+    static double lag1(double[] series) {
+        double mean = 0;
+        for (double value : series) {
+            mean += value;
+        }
+        mean /= series.length;
+
+        double covariance = 0;
+        double variance = 0;
+
+        for (int i = 0; i < series.length; i++) {
+            double d = series[i] - mean;
+
+            variance += d * d;
+            if (i + 1 < series.length) {
+                covariance += d * (series[i + 1] - mean);
+            }
+        }
+
+        return variance > 0
+            ? covariance / variance
+            : 0.0;
+    }
+
+    /*
+     * Quantile of the Student t distribution with df degrees of freedom,
+     * by the Cornish-Fisher expansion around the normal quantile,
+     * accurate to about 1e-4 from 5 degrees of freedom on
+     */
+    static double studentQuantile(double p, int df) {
+        double z = normalQuantile(p);
+        double z2 = z * z;
+
+        return z
+            + z * (z2 + 1) / (4.0 * df)
+            + z * ((5 * z2 + 16) * z2 + 3) / (96.0 * df * df)
+            + z * (((3 * z2 + 19) * z2 + 17) * z2 - 15) / (384.0 * df * df * df)
+            + z * ((((79 * z2 + 776) * z2 + 1482) * z2 - 1920) * z2 - 945) / (92160.0 * df * df * df * df);
+    }
+
+    /*
+     * Quantile of the standard normal distribution,
+     * Acklam's rational approximation with a relative error below 1.2e-9
+     */
+    static double normalQuantile(double p) {
+        if (p <= 0 || p >= 1) {
+            throw new IllegalArgumentException("Probability must be in (0, 1): " + p);
+        }
+
+        final double[] a = { -3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                              1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00 };
+        final double[] b = { -5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                              6.680131188771972e+01, -1.328068155288572e+01 };
+        final double[] c = { -7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                             -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00 };
+        final double[] d = { 7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                             3.754408661907416e+00 };
+
+        double low = 0.02425;
+
+        if (p < low || p > 1 - low) {
+            double q = Math.sqrt(-2 * Math.log(Math.min(p, 1 - p)));
+            double x = (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+
+            return p < low ? x : -x;
+        }
+
+        double q = p - 0.5;
+        double r = q * q;
+
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+            / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    /*
+     * Mean and confidence half-width of every metric
+     */
+    public static class Result {
+        private final List<String> names;
+        private final double[] means;
+        private final double[] halfWidths;
+        private final double batchTime;
+        private final int nBatches;
+        private final boolean correlated;
+
+        Result(List<String> names, double[] means, double[] halfWidths, double batchTime, int nBatches,
+                boolean correlated) {
+            this.names = names;
+            this.means = means;
+            this.halfWidths = halfWidths;
+            this.batchTime = batchTime;
+            this.nBatches = nBatches;
+            this.correlated = correlated;
+        }
+
+        public List<String> getNames() {
+            return this.names;
+        }
+
+        public double getMean(String name) {
+            return this.means[this.indexOf(name)];
+        }
+
+        public double getHalfWidth(String name) {
+            return this.halfWidths[this.indexOf(name)];
+        }
+
+        public double getBatchTime() {
+            return this.batchTime;
+        }
+
+        public int getBatches() {
+            return this.nBatches;
+        }
+
+        /*
+         * True if the batch means of some metric are still correlated
+         * with the largest batches allowed, the half-widths are too narrow then
+         */
+        public boolean isCorrelated() {
+            return this.correlated;
+        }
+
+        private int indexOf(String name) {
+            int index = this.names.indexOf(name);
+
+            if (index < 0) {
+                throw new IllegalArgumentException("No such metric: " + name);
+            }
+
+            return index;
+        }
+
+        public String toString() {
+            var sb = new StringBuilder();
+
+            sb.append(String.format("batches=%d, batch_time=%.2f%n", this.nBatches, this.batchTime));
+
+            for (int i = 0; i < this.names.size(); i++) {
+                sb.append(String.format(" %s=%.4f +- %.4f%n", this.names.get(i), this.means[i], this.halfWidths[i]));
+            }
+
+            return sb.toString();
+        }
+    }
+}
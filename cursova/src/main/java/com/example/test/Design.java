@@ -0,0 +1,154 @@
+package com.example.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Design of an experiment: the points to simulate, every point picks
+ * a level of each factor. The first level of a factor is its base one.
+ */
+public class Design {
+    private final List<Factor<?>> factors;
+    private final List<Point> points = new ArrayList<>();
+
+    private Design(List<Factor<?>> factors) {
+        for (var factor : factors) {
+            if (factor.levels.isEmpty()) {
+                throw new IllegalArgumentException("Factor has no levels: " + factor.name);
+            }
+        }
+
+        this.factors = List.copyOf(factors);
+    }
+
+    /*
+     * Every combination of the levels, the last factor changes fastest
+     */
+    public static Design fullFactorial(Factor<?>... factors) {
+        var design = new Design(List.of(factors));
+        int[] levels = new int[factors.length];
+
+        while (true) {
+            design.add(levels.clone());
+
+            int i = factors.length - 1;
+            while (i >= 0 && ++levels[i] == factors[i].levels.size()) {
+                levels[i--] = 0;
+            }
+
+            if (i < 0) {
+                return design;
+            }
+        }
+    }
+
+    /*
+     * The base point, then every other level of every factor
+     * with the rest of the factors at their base levels
+     */
+    public static Design oneAtATime(Factor<?>... factors) {
+        var design = new Design(List.of(factors));
+        design.add(new int[factors.length]);
+
+        for (int i = 0; i < factors.length; i++) {
+            for (int level = 1; level < factors[i].levels.size(); level++) {
+                int[] levels = new int[factors.length];
+                levels[i] = level;
+
+                design.add(levels);
+            }
+        }
+
+        return design;
+    }
+
+    private void add(int[] levels) {
+        this.points.add(new Point(this.points.size(), levels));
+    }
+
+    public List<Factor<?>> getFactors() {
+        return this.factors;
+    }
+
+    public List<Point> getPoints() {
+        return Collections.unmodifiableList(this.points);
+    }
+
+    public int size() {
+        return this.points.size();
+    }
+
+    public static class Factor<T> {
+        private final String name;
+        private final List<T> levels;
+
+        @SafeVarargs
+        public Factor(String name, T... levels) {
+            var list = new ArrayList<T>(levels.length);
+            for (T level : levels) {
+                list.add(level);
+            }
+
+            this.name = name;
+            this.levels = List.copyOf(list);
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public List<T> getLevels() {
+            return this.levels;
+        }
+    }
+
+    public class Point {
+        private final int index;
+        private final int[] levels;
+
+        Point(int index, int[] levels) {
+            this.index = index;
+            this.levels = levels;
+        }
+
+        /*
+         * Position of the point in the design, exported in place of the test mask
+         */
+        public int getIndex() {
+            return this.index;
+        }
+
+        public <T> T get(Factor<T> factor) {
+            return factor.levels.get(this.getLevel(factor));
+        }
+
+        /*
+         * Factors left out of the design stay at their base level
+         */
+        public int getLevel(Factor<?> factor) {
+            int i = Design.this.factors.indexOf(factor);
+
+            return i >= 0
+                ? this.levels[i]
+                : 0;
+        }
+
+        public String toString() {
+            var sb = new StringBuilder();
+
+            sb.append(this.index).append(":{");
+
+            for (int i = 0; i < this.levels.length; i++) {
+                var factor = Design.this.factors.get(i);
+
+                sb.append(i > 0 ? ", " : "")
+                    .append(factor.name)
+                    .append('=')
+                    .append(factor.levels.get(this.levels[i]));
+            }
+
+            return sb.append('}').toString();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.test;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Flight recorder event of a replication run by a ReplicationRunner
+ */
+@Name("com.example.Replication")
+@Label("Replication")
+@Category({ "Simulation", "Experiment" })
+@StackTrace(false)
+final class ReplicationEvent extends jdk.jfr.Event {
+    @Label("Index")
+    int index;
+
+    @Label("Seed")
+    long seed;
+
+    @Label("Design Point")
+    @Description("Point of the design the replication belongs to, if any")
+    String point;
+}
@@ -0,0 +1,200 @@
+package com.example.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import com.example.modeling.Model;
+import com.example.modeling.Model.ModelStats;
+
+/*
+ * Runs independent replications on a fork/join pool.
+ * Replication i always gets the i-th seed of the master seed,
+ * and results are returned in replication order,
+ * so the output doesn't depend on the number of threads.
+ */
+public class ReplicationRunner {
+    // replications run at once per thread when results are streamed
+    private static final int CHUNK_PER_THREAD = 8;
+
+    private final long seed;
+    private final int threads;
+
+    public ReplicationRunner(long seed) {
+        this(seed, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ReplicationRunner(long seed, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+
+        this.seed = seed;
+        this.threads = threads;
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public <T> List<T> run(int nSamples, LongFunction<T> replication) {
+        return this.run(nSamples, (i, seed) -> replication.apply(seed));
+    }
+
+    /*
+     * Same as run(nSamples, replication), the replication also gets its index
+     */
+    public <T> List<T> run(int nSamples, Replication<T> replication) {
+        var lst = new ArrayList<T>(nSamples);
+
+        this.forEach(nSamples, replication, lst::add);
+        return lst;
+    }
+
+    /*
+     * Hands the results to the action in replication order as they are done.
+     * Replications run in chunks, so only a chunk of results is held at once
+     */
+    public <T> void forEach(int nSamples, Replication<T> replication, Consumer<? super T> action) {
+        long[] seeds = this.seeds(nSamples);
+
+        this.execute(nSamples, i -> replicate(replication, i, seeds[i], null), (result, i) -> action.accept(result));
+    }
+
+    /*
+     * Runs nSamples replications of every point of the design as one set
+     * of tasks, so the points run in parallel rather than one after another.
+     * Replication i gets the same seed at every point, the results are
+     * handed over point by point in replication order
+     */
+    public <T> void forEach(Design design, int nSamples, Function<Design.Point, Replication<T>> replication,
+            BiConsumer<Design.Point, ? super T> action) {
+        this.forEach(design.getPoints(), nSamples, replication, action);
+    }
+
+    public <T> void forEach(List<Design.Point> points, int nSamples, Function<Design.Point, Replication<T>> replication,
+            BiConsumer<Design.Point, ? super T> action) {
+        var replications = points.stream().map(replication).toList();
+        long[] seeds = this.seeds(nSamples);
+
+        this.execute(points.size() * nSamples,
+            k -> replicate(replications.get(k / nSamples), k % nSamples, seeds[k % nSamples], points.get(k / nSamples)),
+            (result, k) -> action.accept(points.get(k / nSamples), result));
+    }
+
+    /*
+     * Runs a replication as a ReplicationEvent of the flight recorder
+     */
+    private static <T> T replicate(Replication<T> replication, int index, long seed, Design.Point point) {
+        var event = new ReplicationEvent();
+        event.begin();
+
+        T result = replication.run(index, seed);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.index = index;
+            event.seed = seed;
+            event.point = point != null ? point.toString() : null;
+            event.commit();
+        }
+
+        return result;
+    }
+
+    private long[] seeds(int nSamples) {
+        return new SplittableRandom(this.seed).longs(nSamples).toArray();
+    }
+
+    private <T> void execute(int nTasks, IntFunction<T> task, ObjIntConsumer<? super T> action) {
+        int chunk = this.threads * CHUNK_PER_THREAD;
+        Object[] results = new Object[Math.min(chunk, nTasks)];
+
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        try {
+            for (int from = 0; from < nTasks; from += chunk) {
+                int start = from;
+                int end = Math.min(from + chunk, nTasks);
+
+                pool.submit(() -> IntStream.range(start, end).parallel().forEach(i -> {
+                    results[i - start] = task.apply(i);
+                })).join();
+
+                for (int i = start; i < end; i++) {
+                    @SuppressWarnings("unchecked")
+                    T result = (T) results[i - start];
+
+                    results[i - start] = null;
+                    action.accept(result, i);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /*
+     * Warms every model up for preRunTime, clears the stats and
+     * returns the stats gathered over runTime
+     */
+    public List<ModelStats> run(int nSamples, Supplier<Model> init, double preRunTime, double runTime) {
+        return this.run(nSamples, replication(init, preRunTime, runTime));
+    }
+
+    public List<ModelStats> run(int nSamples, Supplier<Model> init, double preRunTime, double runTime, int nWarmUps) {
+        return this.run(nSamples, this.replication(init, preRunTime, runTime, nWarmUps));
+    }
+
+    public static Replication<ModelStats> replication(Supplier<Model> init, double preRunTime, double runTime) {
+        return (i, seed) -> {
+            var model = init.get();
+            model.setSeed(seed);
+
+            model.run(preRunTime);
+            model.getStats().clear();
+
+            model.run(runTime);
+            return model.getStats();
+        };
+    }
+
+    /*
+     * Warms nWarmUps models up for preRunTime and forks every replication
+     * from one of them with its own seed, so the warm-up is paid nWarmUps
+     * times instead of nSamples times. Replications sharing a warm-up
+     * start from the same state and are not fully independent
+     */
+    public Replication<ModelStats> replication(Supplier<Model> init, double preRunTime, double runTime, int nWarmUps) {
+        // warm-ups get seeds of their own, not the ones of the replications
+        var warmUps = new ReplicationRunner(~this.seed, this.threads).run(nWarmUps, seed -> {
+            var model = init.get();
+            model.setSeed(seed);
+
+            model.run(preRunTime);
+            return model.snapshot();
+        });
+
+        return (i, seed) -> {
+            var model = init.get();
+            model.setSeed(seed);
+            model.restore(warmUps.get(i % nWarmUps));
+
+            model.run(runTime);
+            return model.getStats();
+        };
+    }
+
+    @FunctionalInterface
+    public interface Replication<T> {
+        T run(int index, long seed);
+    }
+}
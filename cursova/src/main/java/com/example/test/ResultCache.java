@@ -0,0 +1,163 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Function;
+
+import com.example.modeling.Model.ModelStats;
+import com.example.test.ReplicationRunner.Replication;
+
+/*
+ * Results of design points kept on disk as result matrices, a file per
+ * point named by the hash of everything the results depend on: the key
+ * of the point (the model description and the run lengths), the seed of
+ * the runner, the number of replications and the version of the code.
+ * Points found in the cache are read instead of simulated, and a change
+ * of any of them leads to another file, so stale results are never read.
+ */
+public class ResultCache {
+    /*
+     * Version of the engine and the statistics, to be raised with every
+     * change of them that changes the results of the same model
+     */
+    static final int VERSION = 1;
+
+    private final Path directory;
+
+    public ResultCache(String directory) {
+        this.directory = Path.of(directory);
+    }
+
+    /*
+     * SHA-256 of the parts, one per line
+     */
+    public static String key(Object... parts) {
+        var sb = new StringBuilder();
+
+        for (var part : parts) {
+            sb.append(part).append('\n');
+        }
+
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public boolean contains(String key) {
+        return Files.exists(this.path(key));
+    }
+
+    /*
+     * Simulates the points missing from the cache, all of them at once,
+     * and stores every one as soon as it is done. Then hands the rows of
+     * every point over in design order, the same way for cached and new ones
+     */
+    public void forEach(ReplicationRunner runner, Design design, int nSamples,
+            Function<Design.Point, String> key,
+            Function<Design.Point, Replication<ModelStats>> replication,
+            RowConsumer action) {
+        if (nSamples < 0) {
+            throw new IllegalArgumentException("Number of samples must not be negative: " + nSamples);
+        }
+        if (nSamples == 0) {
+            // nothing is simulated, so there are no rows and no entries
+            return;
+        }
+
+        var points = design.getPoints();
+        var keys = points.stream()
+            .map(p -> key(key.apply(p), runner.getSeed(), nSamples, VERSION, ResultMatrix.VERSION))
+            .toList();
+
+        var missing = points.stream()
+            .filter(p -> !this.contains(keys.get(p.getIndex())))
+            .toList();
+
+        if (!missing.isEmpty()) {
+            this.simulate(runner, missing, nSamples, keys, replication);
+        }
+
+        for (var p : points) {
+            try (var matrix = ResultMatrix.read(this.path(keys.get(p.getIndex())).toString())) {
+                for (long i = 0; i < matrix.getRows(); i++) {
+                    action.accept(p, matrix.getColumns(), matrix.getRow(i));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Can't read cached results of point " + p, e);
+            }
+        }
+    }
+
+    /*
+     * Results come point by point, so one entry is written at a time.
+     * It is written aside and moved in place when complete
+     */
+    private void simulate(ReplicationRunner runner, List<Design.Point> points, int nSamples,
+            List<String> keys, Function<Design.Point, Replication<ModelStats>> replication) {
+        var entry = new Entry();
+
+        try {
+            Files.createDirectories(this.directory);
+
+            runner.forEach(points, nSamples, replication, (p, stats) -> {
+                try {
+                    if (entry.rows == 0) {
+                        entry.temp = Files.createTempFile(this.directory, "point", ".tmp");
+                        entry.writer = new ResultMatrix.Writer(entry.temp.toString());
+                        entry.writer.writeHeader(stats.getSchema().getNames());
+                    }
+
+                    entry.writer.writeRow(stats.getValues());
+
+                    if (++entry.rows == nSamples) {
+                        entry.writer.close();
+                        entry.writer = null;
+                        entry.rows = 0;
+
+                        Files.move(entry.temp, this.path(keys.get(p.getIndex())),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Can't cache results of point " + p, e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't create cache directory: " + this.directory, e);
+        } finally {
+            if (entry.writer != null) {
+                try {
+                    entry.writer.close();
+                    Files.deleteIfExists(entry.temp);
+                } catch (IOException e) {
+                    System.err.println("Can't remove incomplete cache entry: " + entry.temp);
+                }
+            }
+        }
+    }
+
+    private static class Entry {
+        ResultMatrix.Writer writer = null;
+        Path temp = null;
+        int rows = 0;
+    }
+
+    private Path path(String key) {
+        return this.directory.resolve(key + ".bin");
+    }
+
+    @FunctionalInterface
+    public interface RowConsumer {
+        void accept(Design.Point point, List<String> names, double[] values);
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Binary replication results: one column of doubles per metric and one row
+ * per replication, stored column after column so a metric can be read
+ * without touching the others. The file is mapped and written off-heap,
+ * and read as views of the mapping, so it may be larger than the heap.
+ *
+ * Layout, little-endian:
+ *   int magic "SMRM", int version, int columns, int reserved, long rows,
+ *   for every column an int length and the UTF-8 name,
+ *   zero padding to 8 bytes, then columns * rows doubles.
+ *
+ * In Python it is read with numpy.memmap at the data offset,
+ * see read_matrix in results.ipynb
+ */
+public class ResultMatrix implements AutoCloseable {
+    static final int MAGIC = 0x4D524D53;
+    static final int VERSION = 1;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+
+    private static final long ROWS_OFFSET = 16;
+    private static final long NAMES_OFFSET = 24;
+
+    private final Arena arena;
+    private final List<String> columns;
+    // columns * rows doubles of the mapped file
+    private final MemorySegment data;
+    private final long rows;
+
+    private ResultMatrix(Arena arena, List<String> columns, MemorySegment data, long rows) {
+        this.arena = arena;
+        this.columns = columns;
+        this.data = data;
+        this.rows = rows;
+    }
+
+    /*
+     * Maps the file, the columns are views of the mapping
+     * valid until the matrix is closed
+     */
+    public static ResultMatrix read(String filename) throws IOException {
+        var arena = Arena.ofShared();
+
+        try (var channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            var file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+
+            if (file.byteSize() < NAMES_OFFSET || file.get(INT, 0) != MAGIC) {
+                throw new IOException("Not a result matrix: " + filename);
+            }
+            if (file.get(INT, 4) != VERSION) {
+                throw new IOException("Unsupported result matrix version: " + file.get(INT, 4));
+            }
+
+            int nColumns = file.get(INT, 8);
+            long rows = file.get(LONG, ROWS_OFFSET);
+
+            var columns = new ArrayList<String>(nColumns);
+            long offset = NAMES_OFFSET;
+
+            for (int i = 0; i < nColumns; i++) {
+                int length = file.get(INT, offset);
+                byte[] name = new byte[length];
+
+                MemorySegment.copy(file, BYTE, offset + Integer.BYTES, name, 0, length);
+                columns.add(new String(name, StandardCharsets.UTF_8));
+                offset += Integer.BYTES + length;
+            }
+
+            long dataOffset = align(offset);
+            long available = Math.max(0, file.byteSize() - dataOffset) / Double.BYTES;
+
+            if (rows < 0 || nColumns > 0 && rows > available / nColumns) {
+                throw new IOException("Result matrix is truncated: " + filename);
+            }
+
+            var data = file.asSlice(dataOffset, nColumns * rows * Double.BYTES).asReadOnly();
+            return new ResultMatrix(arena, columns, data, rows);
+
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    public List<String> getColumns() {
+        return this.columns;
+    }
+
+    public long getRows() {
+        return this.rows;
+    }
+
+    /*
+     * Read-only view of the column, rows little-endian doubles
+     */
+    public MemorySegment getColumn(String name) {
+        return this.data.asSlice(this.indexOf(name) * this.rows * Double.BYTES, this.rows * Double.BYTES);
+    }
+
+    public double get(String name, long row) {
+        return this.get(this.indexOf(name), row);
+    }
+
+    private double get(int column, long row) {
+        if (row < 0 || row >= this.rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + this.rows);
+        }
+
+        return this.data.get(DOUBLE, (column * this.rows + row) * Double.BYTES);
+    }
+
+    public double[] getRow(long row) {
+        double[] values = new double[this.columns.size()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = this.get(i, row);
+        }
+
+        return values;
+    }
+
+    private int indexOf(String name) {
+        int index = this.columns.indexOf(name);
+
+        if (index < 0) {
+            throw new IllegalArgumentException("No such column: " + name);
+        }
+
+        return index;
+    }
+
+    /*
+     * Unmaps the file, the columns can't be used after
+     */
+    @Override
+    public void close() {
+        this.arena.close();
+    }
+
+    private static long align(long offset) {
+        return (offset + Double.BYTES - 1) & -Double.BYTES;
+    }
+
+    /*
+     * The number of rows is unknown until the end, so the columns are laid
+     * out for a capacity that doubles when it runs out, and are moved
+     * together when the file is closed
+     */
+    static class Writer implements StatsSaver.RowWriter {
+        private static final int INITIAL_CAPACITY = 256;
+
+        private final FileChannel channel;
+        private final Arena arena = Arena.ofShared();
+
+        private MemorySegment file = null;
+        private int nColumns = 0;
+        private long dataOffset = 0;
+        private long capacity = 0;
+        private long rows = 0;
+
+        Writer(String filename) throws IOException {
+            this.channel = FileChannel.open(Path.of(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        @Override
+        public void writeHeader(List<String> header) throws IOException {
+            var names = header.stream()
+                .map(name -> name.getBytes(StandardCharsets.UTF_8))
+                .toList();
+
+            long offset = NAMES_OFFSET;
+            for (byte[] name : names) {
+                offset += Integer.BYTES + name.length;
+            }
+
+            this.nColumns = header.size();
+            this.dataOffset = align(offset);
+            this.capacity = INITIAL_CAPACITY;
+            this.map();
+
+            this.file.set(INT, 0, MAGIC);
+            this.file.set(INT, 4, VERSION);
+            this.file.set(INT, 8, this.nColumns);
+            this.file.set(INT, 12, 0);
+
+            offset = NAMES_OFFSET;
+            for (byte[] name : names) {
+                this.file.set(INT, offset, name.length);
+                MemorySegment.copy(name, 0, this.file, BYTE, offset + Integer.BYTES, name.length);
+                offset += Integer.BYTES + name.length;
+            }
+        }
+
+        @Override
+        public void writeRow(double[] values) throws IOException {
+            if (values.length != this.nColumns) {
+                throw new IllegalArgumentException("Expected " + this.nColumns + " values, got " + values.length);
+            }
+
+            if (this.rows == this.capacity) {
+                this.resize(this.capacity * 2);
+            }
+
+            for (int i = 0; i < values.length; i++) {
+                this.file.set(DOUBLE, this.columnOffset(i, this.capacity) + this.rows * Double.BYTES, values[i]);
+            }
+
+            this.rows++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (this.file != null) {
+                    this.resize(this.rows);
+                    this.file.set(LONG, ROWS_OFFSET, this.rows);
+                    this.file.force();
+                }
+            } finally {
+                // the file can't be truncated while it is mapped
+                this.arena.close();
+                this.channel.truncate(this.dataOffset + this.nColumns * this.rows * Double.BYTES);
+                this.channel.close();
+            }
+        }
+
+        private long columnOffset(int column, long capacity) {
+            return this.dataOffset + column * capacity * Double.BYTES;
+        }
+
+        /*
+         * Moves every column to its place for the new capacity,
+         * the last one first when growing so nothing is overwritten
+         */
+        private void resize(long newCapacity) throws IOException {
+            long oldCapacity = this.capacity;
+
+            if (newCapacity > oldCapacity) {
+                this.capacity = newCapacity;
+                this.map();
+            }
+
+            long bytes = this.rows * Double.BYTES;
+
+            for (int k = 0; k < this.nColumns; k++) {
+                int i = newCapacity > oldCapacity ? this.nColumns - 1 - k : k;
+
+                MemorySegment.copy(
+                    this.file, this.columnOffset(i, oldCapacity),
+                    this.file, this.columnOffset(i, newCapacity),
+                    bytes);
+            }
+
+            this.capacity = newCapacity;
+        }
+
+        /*
+         * Maps the file large enough for the current capacity. Old mappings
+         * stay valid until the arena is closed and see the same pages
+         */
+        private void map() throws IOException {
+            long size = this.dataOffset + this.nColumns * this.capacity * Double.BYTES;
+            this.file = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size, this.arena);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.test;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Flight recorder event of the completion of a StatsSaver file,
+ * its duration is the time taken to close the file
+ */
+@Name("com.example.StatsSave")
+@Label("Stats Save")
+@Category({ "Simulation", "Experiment" })
+@StackTrace(false)
+final class StatsSaveEvent extends jdk.jfr.Event {
+    @Label("File")
+    String file;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Size")
+    @DataAmount
+    long size;
+}
@@ -1,143 +1,212 @@
 package com.example.test;
 
-import java.io.File;
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
-import com.example.CompDeviceWithCooldown;
 import com.example.modeling.Model.ModelStats;
-import com.example.modeling.components.Connection;
-import com.example.modeling.components.Queue;
-import com.example.modeling.components.device.Device;
-import com.example.modeling.utils.Pair;
-
-public class StatsSaver {
-    private final ArrayList<Pair<ModelStats, Integer>> stats = new ArrayList<>();
-    
-    public void  addStats(ModelStats stat, int testMask) {
-        this.stats.add(Pair.createPair(stat, testMask));
-    }
-
-    public void save(String filename) {
-        File file = new File(filename);
 
-        if (file.exists()) {
-            if (!file.delete()) {
-                System.err.println("Delete file error: " + filename);
-                return;
+/*
+ * Writes every replication as a row as soon as it is added, nothing is
+ * kept in memory but the current row. The format follows the extension:
+ * .csv and .tsv are written as text, .bin as a mapped ResultMatrix,
+ * anything else as a streamed xlsx sheet. The columns are the metric
+ * schema of the model, the header is taken from the first stats added.
+ */
+public class StatsSaver implements AutoCloseable {
+    private final String filename;
+    private final RowWriter writer;
+    private boolean hasHeader = false;
+    private long rows = 0;
+
+    public StatsSaver(String filename) {
+        this.filename = filename;
+
+        try {
+            if (filename.endsWith(".csv")) {
+                this.writer = new TextWriter(filename, ',');
+            } else if (filename.endsWith(".tsv")) {
+                this.writer = new TextWriter(filename, '\t');
+            } else if (filename.endsWith(".bin")) {
+                this.writer = new ResultMatrix.Writer(filename);
+            } else {
+                this.writer = new XlsxWriter(filename);
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't create file: " + filename, e);
         }
+    }
 
-        try (Workbook workbook = new XSSFWorkbook(); 
-            FileOutputStream fileOut = new FileOutputStream(filename)) {
-            Sheet sheet = workbook.createSheet("Data");
+    public void addStats(ModelStats stat, int testMask) {
+        this.addRow(stat.getSchema().getNames(), stat.getValues(), testMask);
+    }
 
-            if (stats.isEmpty()) {
-                throw new IllegalStateException("Cannot save stats: no data collected.");
+    /*
+     * Adds a row of metric values given with their names, e.g. read from a cache
+     */
+    public void addRow(List<String> names, double[] metrics, int testMask) {
+        try {
+            if (!this.hasHeader) {
+                this.writer.writeHeader(header(names));
+                this.hasHeader = true;
             }
 
-            Pair<ModelStats, Integer> pair = stats.get(0);
-
-            this.addRow(sheet, pair.get0(),pair.get1(), 0);
+            this.writer.writeRow(values(metrics, testMask));
+            this.rows++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't write to file: " + this.filename, e);
+        }
+    }
 
-            for (int i = 0; i < stats.size(); i++) {
-                pair = stats.get(i);
-                this.addRow(sheet, pair.get0(), pair.get1(), i + 1);
-            }
+    /*
+     * Completes the file, recorded as a StatsSaveEvent of the flight recorder
+     */
+    @Override
+    public void close() {
+        if (!this.hasHeader) {
+            System.err.println("No stats were collected: " + this.filename);
+        }
 
-            workbook.write(fileOut);
-            System.out.println("File created: " + filename);
+        var event = new StatsSaveEvent();
+        event.begin();
 
+        try {
+            this.writer.close();
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new UncheckedIOException("Can't write to file: " + this.filename, e);
         }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = this.filename;
+            event.rows = this.rows;
+            event.size = Path.of(this.filename).toFile().length();
+            event.commit();
+        }
+
+        System.out.println("File created: " + this.filename);
+    }
+
+    static List<String> header(ModelStats data) {
+        return header(data.getSchema().getNames());
+    }
+
+    static List<String> header(List<String> names) {
+        var header = new ArrayList<String>();
+
+        header.add("test_mask");
+        header.addAll(names);
+
+        return header;
+    }
+
+    static double[] values(ModelStats data, int testMask) {
+        return values(data.getValues(), testMask);
     }
 
-    void addRow(Sheet sheet, ModelStats data, int testMask, int index) {
-        Row row = sheet.createRow(index);
-        var fields = data.get();
+    static double[] values(double[] metrics, int testMask) {
+        double[] values = new double[metrics.length + 1];
 
-        if (index == 0) {
-            row.createCell(0).setCellValue("test_mask");
-            row.createCell(1).setCellValue("total_time");
-        } else {
-            row.createCell(0).setCellValue(testMask);
-            row.createCell(1).setCellValue(data.getTotalTime());
+        values[0] = testMask;
+        System.arraycopy(metrics, 0, values, 1, metrics.length);
+
+        return values;
+    }
+
+    interface RowWriter extends Closeable {
+        void writeHeader(List<String> header) throws IOException;
+        void writeRow(double[] values) throws IOException;
+    }
+
+    /*
+     * Keeps a window of rows in memory, older ones are flushed to a temp file
+     */
+    static class XlsxWriter implements RowWriter {
+        private static final int WINDOW = 100;
+
+        private final String filename;
+        private final SXSSFWorkbook workbook = new SXSSFWorkbook(WINDOW);
+        private final Sheet sheet;
+        private int rowNum = 0;
+
+        XlsxWriter(String filename) {
+            this.filename = filename;
+            this.workbook.setCompressTempFiles(true);
+            this.sheet = this.workbook.createSheet("Data");
         }
 
-        int i = 2;
-        for (var obj : fields) {
+        @Override
+        public void writeHeader(List<String> header) {
+            Row row = this.sheet.createRow(this.rowNum++);
 
-            if (obj instanceof Device.Stats) {
-                var st = (Device.Stats)obj;
-                var name = st.getName();
+            for (int i = 0; i < header.size(); i++) {
+                row.createCell(i).setCellValue(header.get(i));
+            }
+        }
 
-                if (index == 0) {
-                    row.createCell(i).setCellValue(name + "_utilization"); i++;
-                    row.createCell(i).setCellValue(name + "_served");
-                } else {
-                    row.createCell(i).setCellValue(st.getUtilization()); i++;
-                    row.createCell(i).setCellValue(st.getServed());
-                }
+        @Override
+        public void writeRow(double[] values) {
+            Row row = this.sheet.createRow(this.rowNum++);
 
-            } else if (obj instanceof CompDeviceWithCooldown.Stats) {
-                var st = (CompDeviceWithCooldown.Stats)obj;
-                var name = st.getName();
-
-                if (index == 0) {
-                    row.createCell(i).setCellValue(name + "_utilization"); i++;
-                    row.createCell(i).setCellValue(name + "_busyTime"); i++;
-                    row.createCell(i).setCellValue(name + "_cooldownTime"); i++;
-                    row.createCell(i).setCellValue(name + "_served");
-                } else {
-                    row.createCell(i).setCellValue(st.getUtilization()); i++;
-                    row.createCell(i).setCellValue(st.getBusyTime()); i++;
-                    row.createCell(i).setCellValue(st.getCooldownTime()); i++;
-                    row.createCell(i).setCellValue(st.getServed());
-                }
+            for (int i = 0; i < values.length; i++) {
+                row.createCell(i).setCellValue(values[i]);
+            }
+        }
 
-            } else if (obj instanceof Connection.Stats) {
-                var st = (Connection.Stats)obj;
-                var name = st.getName();
+        @Override
+        public void close() throws IOException {
+            try (FileOutputStream fileOut = new FileOutputStream(this.filename)) {
+                this.workbook.write(fileOut);
+            } finally {
+                this.workbook.close();
+            }
+        }
+    }
 
-                if (index == 0) {
-                    row.createCell(i).setCellValue(name + "_throughput"); i++;
-                    row.createCell(i).setCellValue(name + "_availability");
-                } else {
-                    row.createCell(i).setCellValue(st.getThroughput()); i++;
-                    row.createCell(i).setCellValue(st.getAvailability());
-                }
+    static class TextWriter implements RowWriter {
+        private final BufferedWriter out;
+        private final char separator;
 
-            } else if (obj instanceof Queue.Stats) {
-                var st = (Queue.Stats)obj;
-                var name = st.getName();
-
-                if (index == 0) {
-                    row.createCell(i).setCellValue(name + "_avg_sz"); i++;
-                    row.createCell(i).setCellValue(name + "_avg_wt"); i++;
-                    row.createCell(i).setCellValue(name + "_pair_avg_sz"); i++;
-                    row.createCell(i).setCellValue(name + "_pair_avg_wt"); i++;
-                    row.createCell(i).setCellValue(name + "_served"); i++;
-                    row.createCell(i).setCellValue(name + "_total_wait_time");
-                } else {
-                    row.createCell(i).setCellValue(st.getAverageQueueSize()); i++;
-                    row.createCell(i).setCellValue(st.getAvgWaitTime()); i++;
-                    row.createCell(i).setCellValue(st.getAverageBatchQueueSize(2)); i++;
-                    row.createCell(i).setCellValue(st.getAvgBatchWaitTime(2)); i++;
-                    row.createCell(i).setCellValue(st.getServed()); i++;
-                    row.createCell(i).setCellValue(st.getTotalWaitTime());
+        TextWriter(String filename, char separator) throws IOException {
+            this.out = Files.newBufferedWriter(Path.of(filename));
+            this.separator = separator;
+        }
+
+        @Override
+        public void writeHeader(List<String> header) throws IOException {
+            this.out.write(String.join(String.valueOf(this.separator), header));
+            this.out.newLine();
+        }
+
+        @Override
+        public void writeRow(double[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    this.out.write(this.separator);
                 }
-            } else {
-                throw new IllegalArgumentException("Unsupported stats type: " + obj.getClass().getName());
+
+                double value = values[i];
+                this.out.write(value == Math.rint(value) && Math.abs(value) < 1e15
+                    ? Long.toString((long)value)
+                    : Double.toString(value));
             }
 
-            i++;
+            this.out.newLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.close();
         }
     }
 }
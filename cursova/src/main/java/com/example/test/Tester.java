@@ -1,5 +1,6 @@
 package com.example.test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
 
@@ -10,12 +11,44 @@ import com.example.modeling.components.Connection;
 import com.example.modeling.components.Producer;
 import com.example.modeling.utils.FunRand;
 import com.example.modeling.utils.NextRulesImpl;
+import com.example.test.Design.Factor;
 
 public class Tester {
     static final int N_SAMPLES = 1000;
+    static final int N_WARM_UPS = 50;
     static final double TIME = 1440;
+    static final long SEED = 25;
+
+    static final ReplicationRunner runner = new ReplicationRunner(SEED);
+
+    // 20 pilots observed hourly over 400 hours, at most 200 hours of warm-up
+    static final WarmUp warmUp = new WarmUp(60, 400, 20);
+
+    // one run as long as all the replications, observed hourly
+    static final BatchMeans batchMeans = new BatchMeans(60, (int)(N_SAMPLES * TIME / 60));
+
+    // factors of the experiments, the first level is the one of the base model
+    static final Factor<Supplier<Double>> producerWorks = new Factor<>("producerWork",
+        FunRand.getErlang(8, 32), FunRand.getErlang(4, 16));
+    static final Factor<Supplier<Double>> loader1Works = new Factor<>("loader1Work",
+        FunRand.getExponential(14), FunRand.getExponential(7));
+    static final Factor<Supplier<Double>> loader2Works = new Factor<>("loader2Work",
+        FunRand.getExponential(12), FunRand.getExponential(6));
+    static final Factor<Supplier<Double>> loaderCooldowns = new Factor<>("loaderCooldown",
+        FunRand.getFixed(5), FunRand.getFixed(1));
+    static final Factor<Supplier<Double>> truckWorks = new Factor<>("truckWork",
+        FunRand.getCombined(List.of(FunRand.getNotNullNorm(22, 10), FunRand.getUniform(2, 8))),
+        FunRand.getCombined(List.of(FunRand.getNotNullNorm(11, 5), FunRand.getUniform(2, 8))),
+        FunRand.getCombined(List.of(FunRand.getNotNullNorm(22, 10), FunRand.getUniform(2, 4))));
+    static final Factor<Supplier<Double>> truckCooldowns = new Factor<>("truckCooldown",
+        FunRand.getNotNullNorm(18, 10), FunRand.getNotNullNorm(9, 5));
+    static final Factor<Integer> truckCounts = new Factor<>("trucks", 4, 5);
+    static final Factor<Double> preRunTimes = new Factor<>("preRunTime", 0.0, 4000.0, 8000.0, 12000.0, 16000.0);
 
     static final String savePath = "C:\\Users\\vladi\\.vscode\\Git\\SM_25\\SM_25\\cursova\\";
+    // results of design points, reused while the models and runs stay the same
+    static final ResultCache cache = new ResultCache(savePath + "cache");
+
     static final String verificationBaseName = "verification";
     static final String transPeriodName = "trans";
     static final String resultName = "result";
@@ -41,18 +74,13 @@ public class Tester {
             truckCooldown
         );
 
-        var statsSaver = new StatsSaver();
-        for (int j = 0; j < N_SAMPLES; j++) {
-            var model = init.get();
-
-            model.run(12_000);
-            model.getStats().clear();
+        double preRunTime = warmUp.estimate(runner, init);
+        System.out.println("Warm-up time: " + preRunTime);
 
-            model.run(TIME);
-            statsSaver.addStats(model.getStats(), 0);
+        try (var statsSaver = new StatsSaver(savePath + modName + ".xlsx")) {
+            var replication = runner.replication(init, preRunTime, TIME, N_WARM_UPS);
+            runner.forEach(N_SAMPLES, replication, stats -> statsSaver.addStats(stats, 0));
         }
-
-        statsSaver.save(savePath + modName + ".xlsx");
     }
 
     public static void resultTest() {
@@ -75,21 +103,19 @@ public class Tester {
             truckCooldown
         );
 
-        var statsSaver = new StatsSaver();
-        for (int j = 0; j < N_SAMPLES; j++) {
-            var model = init.get();
+        double preRunTime = warmUp.estimate(runner, init);
+        System.out.println("Warm-up time: " + preRunTime);
 
-            model.run(12_000);
-            model.getStats().clear();
-
-            model.run(TIME);
-            statsSaver.addStats(model.getStats(), 0);
+        try (var statsSaver = new StatsSaver(savePath + resultName + ".xlsx")) {
+            var replication = runner.replication(init, preRunTime, TIME, N_WARM_UPS);
+            runner.forEach(N_SAMPLES, replication, stats -> statsSaver.addStats(stats, 0));
         }
-
-        statsSaver.save(savePath + resultName + ".xlsx");
     }
 
-    public static void transPeriodTest() {
+    /*
+     * Steady-state estimates of the base model from a single long run
+     */
+    public static void batchMeansTest() {
         var producerWork = FunRand.getErlang(8, 32);
         var loader1Work = FunRand.getExponential(14);
         var loader2Work = FunRand.getExponential(12);
@@ -109,26 +135,17 @@ public class Tester {
             truckCooldown
         );
 
-        var preRunTimes = List.of(0, 4000, 8000, 12000, 16000);
-
-        var statsSaver = new StatsSaver();
-
-        for (int i = 0; i < preRunTimes.size(); i++) {
-            for (int j = 0; j < N_SAMPLES; j++) {
-                var model = init.get();
-
-                model.run(preRunTimes.get(i));
-                model.getStats().clear();
+        double preRunTime = warmUp.estimate(runner, init);
+        System.out.println("Warm-up time: " + preRunTime);
 
-                model.run(TIME);
-                statsSaver.addStats(model.getStats(), i);
-            }
+        var result = batchMeans.run(init, SEED, preRunTime, 0.95);
+        if (result.isCorrelated()) {
+            System.out.println("Batch means are still correlated with batches of " + result.getBatchTime() + " time units");
         }
-
-        statsSaver.save(savePath + transPeriodName + ".xlsx");
+        System.out.println(result);
     }
 
-    public static void verificationTest() {
+    public static void transPeriodTest() {
         var producerWork = FunRand.getErlang(8, 32);
         var loader1Work = FunRand.getExponential(14);
         var loader2Work = FunRand.getExponential(12);
@@ -139,91 +156,58 @@ public class Tester {
         );
         var truckCooldown = FunRand.getNotNullNorm(18, 10);
 
-        var lst = List.of(
-            getBaseModelInitializer(
-                producerWork,
-                loader1Work,
-                loader2Work,
-                loaderCooldown,
-                truckWork,
-                truckCooldown
-            ),
-            getBaseModelInitializer(
-                FunRand.getErlang(4, 16),
-                loader1Work,
-                loader2Work,
-                loaderCooldown,
-                truckWork,
-                truckCooldown
-            ),
-            getBaseModelInitializer(
-                producerWork,
-                FunRand.getExponential(7),
-                loader2Work,
-                loaderCooldown,
-                truckWork,
-                truckCooldown
-            ),
-            getBaseModelInitializer(
-                producerWork,
-                loader1Work,
-                FunRand.getExponential(6),
-                loaderCooldown,
-                truckWork,
-                truckCooldown
-            ),
-            getBaseModelInitializer(
-                producerWork,
-                loader1Work,
-                loader2Work,
-                FunRand.getFixed(1),
-                truckWork,
-                truckCooldown
-            ),
-            getBaseModelInitializer(
-                producerWork,
-                loader1Work,
-                loader2Work,
-                loaderCooldown,
-                FunRand.getCombined(List.of(
-                    FunRand.getNotNullNorm(11, 5), 
-                    FunRand.getUniform(2, 8))
-                ),
-                truckCooldown
-            ),
-            getBaseModelInitializer(
-                producerWork,
-                loader1Work,
-                loader2Work,
-                loaderCooldown,
-                FunRand.getCombined(List.of(
-                    FunRand.getNotNullNorm(22, 10), 
-                    FunRand.getUniform(2, 4))
-                ),
-                truckCooldown
-            ),
-            getBaseModelInitializer(
-                producerWork,
-                loader1Work,
-                loader2Work,
-                loaderCooldown,
-                truckWork,
-                FunRand.getNotNullNorm(9,5)
-            )
+        var init = getBaseModelInitializer(
+            producerWork,
+            loader1Work,
+            loader2Work,
+            loaderCooldown,
+            truckWork,
+            truckCooldown
         );
 
-        var statsSaver = new StatsSaver();
+        var design = Design.fullFactorial(preRunTimes);
 
-        for (int i = 0; i < lst.size(); i++) {
+        try (var statsSaver = new StatsSaver(savePath + transPeriodName + ".xlsx")) {
+            cache.forEach(runner, design, N_SAMPLES,
+                p -> ResultCache.key(init.get().getDescription(), p.get(preRunTimes), TIME),
+                p -> ReplicationRunner.replication(init, p.get(preRunTimes), TIME),
+                (p, names, values) -> statsSaver.addRow(names, values, p.getIndex()));
+        }
+    }
 
-            for (int j = 0; j < N_SAMPLES; j++) {
-                var model = lst.get(i).get();
+    /*
+     * The base model and every other level of its factors one at a time
+     */
+    public static void verificationTest() {
+        var design = Design.oneAtATime(
+            producerWorks,
+            loader1Works,
+            loader2Works,
+            loaderCooldowns,
+            truckWorks,
+            truckCooldowns
+        );
 
-                model.run(TIME);
-                statsSaver.addStats(model.getStats(), i);
-            }
+        // replication j of every variant gets the same seed, and so the same
+        // stream per component wherever the variants agree
+        try (var statsSaver = new StatsSaver(savePath + verificationBaseName + ".xlsx")) {
+            cache.forEach(runner, design, N_SAMPLES,
+                p -> ResultCache.key(getModelInitializer(p).get().getDescription(), 0, TIME),
+                p -> ReplicationRunner.replication(getModelInitializer(p), 0, TIME),
+                (p, names, values) -> statsSaver.addRow(names, values, p.getIndex()));
         }
-        statsSaver.save(savePath + verificationBaseName + ".xlsx");
+    }
+
+    public static Supplier<Model> getModelInitializer(Design.Point p) {
+        return getModelInitializer(
+            p.get(producerWorks),
+            p.get(loader1Works),
+            p.get(loader2Works),
+            p.get(loaderCooldowns),
+            p.get(truckWorks),
+            p.get(truckCooldowns),
+            p.get(truckCounts)
+        );
     }
 
     public static Supplier<Model> getBaseModelInitializer(
@@ -234,57 +218,7 @@ public class Tester {
         Supplier<Double> truckWork,
         Supplier<Double> truckCooldown
     ) {
-        return () -> {
-            var producer1 = new Producer(producerWork, "Producer1");
-
-            var q = new PairQueue("Queue");
-
-            var a1 = new CompDeviceWithCooldown(loader1Work, loaderCooldown, "Loader1");
-            var a2 = new CompDeviceWithCooldown(loader2Work,  loaderCooldown, "Loader2");
-
-            var rule0 = new NextRulesImpl.Probability();
-            var con0 = new Connection(rule0, "Con0");
-            var con1 = new Connection(new NextRulesImpl.Probability(), "Con1");
-
-            var p1 = new CompDeviceWithCooldown(truckWork, truckCooldown, "Truck1");
-            var p2 = new CompDeviceWithCooldown(truckWork, truckCooldown, "Truck2");
-            var p3 = new CompDeviceWithCooldown(truckWork, truckCooldown, "Truck3");
-            var p4 = new CompDeviceWithCooldown(truckWork, truckCooldown, "Truck4");
-
-            rule0.setPredicator(() -> {
-                int countA = 0;
-                int countB = 0;
-
-                if (a1.getLeftTime().isPresent()) countA++;
-                if (a2.getLeftTime().isPresent()) countA++;
-
-                if (p1.getLeftTime().isEmpty()) countB++;
-                if (p2.getLeftTime().isEmpty()) countB++;
-                if (p3.getLeftTime().isEmpty()) countB++;
-                if (p4.getLeftTime().isEmpty()) countB++;
-
-                if (countA == 2) return false;
-                return countB > countA;
-            });
-
-            producer1.setNext(q);
-            q.setNext(con0);
-
-            con0.addNext(a1, 1);
-            con0.addNext(a2, 1);
-
-            a1.setNext(con1);
-            a2.setNext(con1);
-
-            con1.addNext(p1, 1);
-            con1.addNext(p2, 1);
-            con1.addNext(p3, 1);
-            con1.addNext(p4, 1);
-
-            var proc = new Model(producer1);
-
-            return proc;
-        };
+        return getModelInitializer(producerWork, loader1Work, loader2Work, loaderCooldown, truckWork, truckCooldown, 4);
     }
 
     public static Supplier<Model> getModModelInitializer(
@@ -294,11 +228,23 @@ public class Tester {
         Supplier<Double> loaderCooldown,
         Supplier<Double> truckWork,
         Supplier<Double> truckCooldown
+    ) {
+        return getModelInitializer(producerWork, loader1Work, loader2Work, loaderCooldown, truckWork, truckCooldown, 5);
+    }
+
+    public static Supplier<Model> getModelInitializer(
+        Supplier<Double> producerWork,
+        Supplier<Double> loader1Work,
+        Supplier<Double> loader2Work,
+        Supplier<Double> loaderCooldown,
+        Supplier<Double> truckWork,
+        Supplier<Double> truckCooldown,
+        int nTrucks
     ) {
         return () -> {
             var producer1 = new Producer(producerWork, "Producer1");
 
-            var q = new PairQueue("Queue");
+            var q = new PairQueue("Queue", true);
 
             var a1 = new CompDeviceWithCooldown(loader1Work, loaderCooldown, "Loader1");
             var a2 = new CompDeviceWithCooldown(loader2Work,  loaderCooldown, "Loader2");
@@ -307,28 +253,25 @@ public class Tester {
             var con0 = new Connection(rule0, "Con0");
             var con1 = new Connection(new NextRulesImpl.Probability(), "Con1");
 
-            var p1 = new CompDeviceWithCooldown(truckWork, truckCooldown, "Truck1");
-            var p2 = new CompDeviceWithCooldown(truckWork, truckCooldown, "Truck2");
-            var p3 = new CompDeviceWithCooldown(truckWork, truckCooldown, "Truck3");
-            var p4 = new CompDeviceWithCooldown(truckWork, truckCooldown, "Truck4");
-            var p5 = new CompDeviceWithCooldown(truckWork, truckCooldown, "Truck5");
+            var trucks = new ArrayList<CompDeviceWithCooldown>();
+            for (int i = 1; i <= nTrucks; i++) {
+                trucks.add(new CompDeviceWithCooldown(truckWork, truckCooldown, "Truck" + i));
+            }
 
-            rule0.setPredicator(() -> {
+            rule0.setPredicator(Connection.NextRules.describe("loaders busy < 2 && trucks free > loaders busy", () -> {
                 int countA = 0;
                 int countB = 0;
 
-                if (a1.getLeftTime().isPresent()) countA++;
-                if (a2.getLeftTime().isPresent()) countA++;
+                if (a1.isBusy()) countA++;
+                if (a2.isBusy()) countA++;
 
-                if (p1.getLeftTime().isEmpty()) countB++;
-                if (p2.getLeftTime().isEmpty()) countB++;
-                if (p3.getLeftTime().isEmpty()) countB++;
-                if (p4.getLeftTime().isEmpty()) countB++;
-                if (p5.getLeftTime().isEmpty()) countB++;
+                for (var truck : trucks) {
+                    if (!truck.isBusy()) countB++;
+                }
 
                 if (countA == 2) return false;
                 return countB > countA;
-            });
+            }));
 
             producer1.setNext(q);
             q.setNext(con0);
@@ -339,16 +282,13 @@ public class Tester {
             a1.setNext(con1);
             a2.setNext(con1);
 
-            con1.addNext(p1, 1);
-            con1.addNext(p2, 1);
-            con1.addNext(p3, 1);
-            con1.addNext(p4, 1);
-            con1.addNext(p5, 1);
+            for (var truck : trucks) {
+                con1.addNext(truck, 1);
+            }
 
             var proc = new Model(producer1);
 
             return proc;
         };
     }
-    
 }
@@ -0,0 +1,145 @@
+package com.example.test;
+
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import com.example.modeling.MetricSchema;
+import com.example.modeling.Model;
+
+/*
+ * Picks the warm-up period of an experiment with MSER-5.
+ * Pilot replications record the average queue sizes and utilizations
+ * of every interval, the series are averaged over the pilots and each
+ * one is truncated where the MSER statistic of its batch means of 5
+ * is the lowest. The longest truncation of all series is the warm-up.
+ */
+public class WarmUp {
+    static final int BATCH_SIZE = 5;
+
+    private final double interval;
+    private final int nIntervals;
+    private final int nPilots;
+
+    public WarmUp(double interval, int nIntervals, int nPilots) {
+        if (interval <= 0 || nIntervals < 2 * BATCH_SIZE || nPilots <= 0) {
+            throw new IllegalArgumentException(
+                "Interval and number of pilots must be positive, number of intervals at least " + 2 * BATCH_SIZE);
+        }
+
+        this.interval = interval;
+        this.nIntervals = nIntervals;
+        this.nPilots = nPilots;
+    }
+
+    /*
+     * Returns the time to run a model of the experiment before its stats are cleared
+     */
+    public double estimate(ReplicationRunner runner, Supplier<Model> init) {
+        var pilots = runner.run(this.nPilots, seed -> {
+            var model = init.get();
+            model.setSeed(seed);
+
+            return this.observe(model);
+        });
+
+        int nSeries = pilots.get(0).length;
+        int truncated = 0;
+
+        for (int s = 0; s < nSeries; s++) {
+            double[] mean = new double[this.nIntervals];
+
+            for (double[][] pilot : pilots) {
+                for (int i = 0; i < this.nIntervals; i++) {
+                    mean[i] += pilot[s][i] / this.nPilots;
+                }
+            }
+
+            truncated = Math.max(truncated, mser(mean, BATCH_SIZE));
+        }
+
+        return truncated * this.interval;
+    }
+
+    /*
+     * Observations of every series (rows) over every interval (columns)
+     */
+    private double[][] observe(Model model) {
+        int[] columns = columns(model.getSchema());
+        double[][] series = new double[columns.length][this.nIntervals];
+        double[] values = new double[model.getSchema().size()];
+
+        for (int i = 0; i < this.nIntervals; i++) {
+            model.run(this.interval);
+
+            var stats = model.getStats();
+            stats.getSchema().extract(values, 0);
+
+            for (int s = 0; s < columns.length; s++) {
+                series[s][i] = values[columns[s]];
+            }
+
+            stats.clear();
+        }
+
+        return series;
+    }
+
+    /*
+     * Columns of the average queue sizes and the utilizations
+     */
+    private static int[] columns(MetricSchema schema) {
+        var names = schema.getNames();
+
+        return IntStream.range(0, names.size())
+            .filter(i -> names.get(i).endsWith("_avg_sz") || names.get(i).endsWith("_utilization"))
+            .toArray();
+    }
+
+    /*
+     * Number of observations to drop from the start of the series:
+     * the series is split into batch means and the truncation point d
+     * minimizing sum((x - mean)^2) / (n - d)^2 over the remaining batches
+     * is searched in the first half of the batches
+     */
+    public static int mser(double[] series, int batchSize) {
+        int n = series.length / batchSize;
+        double[] batches = new double[n];
+
+        for (int b = 0; b < n; b++) {
+            double sum = 0;
+
+            for (int i = 0; i < batchSize; i++) {
+                sum += series[b * batchSize + i];
+            }
+
+            batches[b] = sum / batchSize;
+        }
+
+        // suffix sums give the mean and the squared deviations of every tail in O(n)
+        double sum = 0;
+        double sumSq = 0;
+
+        int best = 0;
+        double bestStat = Double.MAX_VALUE;
+
+        for (int d = n - 1; d >= 0; d--) {
+            sum += batches[d];
+            sumSq += batches[d] * batches[d];
+
+            if (d > n / 2) {
+                continue;
+            }
+
+            int left = n - d;
+            double dev = Math.max(0, sumSq - sum * sum / left);
+            double stat = dev / ((double)left * left);
+
+            if (stat <= bestStat) {
+                bestStat = stat;
+                best = d;
+            }
+        }
+
+        return best * batchSize;
+    }
+}
@@ -0,0 +1,384 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.modeling.Model;
+import com.example.modeling.Profiler;
+import com.example.modeling.components.CompDevice;
+import com.example.modeling.components.Connection;
+import com.example.modeling.components.Producer;
+import com.example.modeling.components.Queue;
+import com.example.modeling.utils.FunRand;
+import com.example.modeling.utils.NextRulesImpl;
+import com.example.modeling.utils.TimeBackend;
+import com.example.test.Tester;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+public class ModelTest {
+
+    @Test
+    public void tandemTest() {
+        var producer = new Producer(FunRand.getFixed(2), "Producer");
+        var q = new Queue("Queue");
+        var device = new CompDevice(FunRand.getFixed(3), "Device");
+
+        producer.setNext(q);
+        q.setNext(device);
+
+        var model = new Model(producer);
+        model.run(100);
+
+        assertEquals(50, producer.getStats().getServed());
+        assertEquals(50, q.getStats().getRequests());
+        assertEquals(33, q.getStats().getServed());
+        assertEquals(32, device.getStats().getServed());
+        assertEquals(100, device.getStats().getTotal(), 1e-9);
+        assertEquals(0.98, device.getStats().getUtilization(), 1e-9);
+
+        // arrivals at 2k and finishes at 2 + 3k, the even ones coincide
+        assertEquals(66, model.getEvents());
+    }
+
+    /*
+     * Loader/truck model of Tester on cyclic times, the values
+     * are the ones of the full scan engine of the initial version
+     */
+    @Test
+    public void goldenTest() {
+        var producer = new Producer(cycle(7.5, 9.25, 6.1, 11.3), "Producer1");
+        var q = new PairQueue("Queue");
+        var a1 = new CompDeviceWithCooldown(cycle(14, 3.3, 20.7), cycle(5), "Loader1");
+        var a2 = new CompDeviceWithCooldown(cycle(12, 8.8, 1.9, 30), cycle(5), "Loader2");
+        var rule0 = new NextRulesImpl.Priority();
+        var con0 = new Connection(rule0, "Con0");
+        var con1 = new Connection(new NextRulesImpl.Priority(), "Con1");
+
+        var truckWork = cycle(22.1, 30.4, 17.9, 25.25, 40.0);
+        var truckCooldown = cycle(18, 9.5, 27.3);
+        var trucks = new CompDeviceWithCooldown[4];
+        for (int i = 0; i < trucks.length; i++) {
+            trucks[i] = new CompDeviceWithCooldown(truckWork, truckCooldown, "Truck" + (i + 1));
+        }
+
+        rule0.setPredicator(() -> {
+            int countA = 0;
+            int countB = 0;
+
+            if (a1.getLeftTime().isPresent()) countA++;
+            if (a2.getLeftTime().isPresent()) countA++;
+            for (var truck : trucks) {
+                if (truck.getLeftTime().isEmpty()) countB++;
+            }
+
+            if (countA == 2) return false;
+            return countB > countA;
+        });
+
+        producer.setNext(q);
+        q.setNext(con0);
+        con0.addNext(a1, 1);
+        con0.addNext(a2, 2);
+        a1.setNext(con1);
+        a2.setNext(con1);
+        for (int i = 0; i < trucks.length; i++) {
+            con1.addNext(trucks[i], i + 1);
+        }
+
+        var model = new Model(producer);
+        model.run(3000.5);
+        model.getStats().clear();
+        model.run(1440);
+
+        assertEquals(1323.6, q.getStats().getTotalWaitTime(), 1e-9);
+        assertEquals(0.9191666666666666, q.getStats().getAverageQueueSize(), 1e-9);
+        assertEquals(2.7130952380952382, q.getStats().getAvgBatchWaitTime(2), 1e-9);
+        assertEquals(0.305625, con0.getStats().getAvailability(), 1e-9);
+        assertEquals(1.0, con1.getStats().getAvailability(), 1e-9);
+
+        double[][] expected = {
+            {224.7, 85.0}, {885.5, 339.0},
+            {304.3, 300.0}, {601.55, 429.6}, {698.95, 508.8}, {680.0, 300.2}};
+        var devices = List.of(a1, a2, trucks[0], trucks[1], trucks[2], trucks[3]);
+
+        for (int i = 0; i < expected.length; i++) {
+            var st = devices.get(i).getStats();
+
+            assertEquals(expected[i][0], st.getBusyTime(), 1e-9, st.getName());
+            assertEquals(expected[i][1], st.getCooldownTime(), 1e-9, st.getName());
+            assertEquals(1440, st.getTotal(), 1e-9, st.getName());
+        }
+    }
+
+    private static Supplier<Double> cycle(double... values) {
+        int[] i = {0};
+        return () -> values[i[0]++ % values.length];
+    }
+
+    @Test
+    public void schemaTest() {
+        var producer = new Producer(FunRand.getFixed(2), "Producer");
+        var q = new Queue("Queue");
+        var device = new CompDevice(FunRand.getFixed(3), "Device");
+
+        producer.setNext(q);
+        q.setNext(device);
+
+        var model = new Model(producer);
+        var schema = model.getSchema();
+
+        assertEquals(List.of(
+            "total_time",
+            "Producer_utilization", "Producer_served",
+            "Queue_avg_sz", "Queue_avg_wt", "Queue_pair_avg_sz", "Queue_pair_avg_wt",
+            "Queue_served", "Queue_total_wait_time",
+            "Device_utilization", "Device_served"), schema.getNames());
+
+        model.run(100);
+        double[] values = model.getStats().getValues();
+
+        assertEquals(100, values[schema.indexOf("total_time")], 1e-9);
+        assertEquals(33, values[schema.indexOf("Queue_served")]);
+        assertEquals(q.getStats().getAverageQueueSize(), values[schema.indexOf("Queue_avg_sz")]);
+        assertEquals(0.98, values[schema.indexOf("Device_utilization")], 1e-9);
+    }
+
+    @Test
+    public void waitTimesTest() {
+        var producer = new Producer(FunRand.getFixed(1), "Producer");
+        var q = new Queue("Queue", true);
+        var device = new CompDevice(FunRand.getFixed(3), "Device");
+
+        producer.setNext(q);
+        q.setNext(device);
+
+        new Model(producer).run(30);
+
+        // the k-th request arrives at k and starts at 3k - 2
+        var waits = q.getStats().getWaitTimes();
+
+        assertEquals(10, waits.getTotalWeight(), 1e-9);
+        assertEquals(9, waits.getMean(), 1e-9);
+        assertEquals(18, waits.getMax(), 1e-9);
+        assertEquals(20, q.getSize());
+    }
+
+    @Test
+    public void batchTimesTest() {
+        var producer = new Producer(FunRand.getFixed(1), "Producer");
+        var q = new PairQueue("Queue", true);
+        var device = new CompDevice(FunRand.getFixed(0.5), "Device");
+
+        producer.setNext(q);
+        q.setNext(device);
+
+        new Model(producer).run(20.5);
+
+        var st = q.getStats();
+
+        assertEquals(10, st.getBatchTimes().getTotalWeight(), 1e-9);
+        assertEquals(1, st.getBatchTimes().getMean(), 1e-9);
+        assertEquals(20, st.getWaitTimes().getTotalWeight(), 1e-9);
+        assertEquals(0.5, st.getWaitTimes().getMean(), 1e-9);
+    }
+
+    @Test
+    public void timeBackendTest() {
+        var ticks = createModel(TimeBackend.TICKS, 42);
+        var decimal = createModel(TimeBackend.DECIMAL, 42);
+
+        ticks.run(5000.123);
+        decimal.run(5000.123);
+
+        assertEquals(decimal.getStats().toString(), ticks.getStats().toString());
+
+        var st1 = ticks.getStats().get();
+        var st2 = decimal.getStats().get();
+
+        for (int i = 0; i < st1.size(); i++) {
+            if (st1.get(i) instanceof CompDeviceWithCooldown.Stats s1) {
+                var s2 = (CompDeviceWithCooldown.Stats) st2.get(i);
+
+                assertEquals(s2.getBusyTime(), s1.getBusyTime());
+                assertEquals(s2.getCooldownTime(), s1.getCooldownTime());
+            } else if (st1.get(i) instanceof Queue.Stats s1) {
+                var s2 = (Queue.Stats) st2.get(i);
+
+                assertEquals(s2.getTotalWaitTime(), s1.getTotalWaitTime());
+            }
+        }
+    }
+
+    @Test
+    public void snapshotTest() {
+        var straight = createTandemModel();
+        straight.run(51);
+        straight.getStats().clear();
+        straight.run(49);
+
+        var warm = createTandemModel();
+        warm.run(51);
+
+        var fork = createTandemModel();
+        fork.restore(warm.snapshot());
+        fork.run(49);
+
+        assertEquals(straight.getStats().toString(), fork.getStats().toString());
+        assertEquals(100, fork.getStats().getTotalTime(), 1e-9);
+
+        var waits1 = ((Queue.Stats) straight.getStats().get().get(1)).getWaitTimes();
+        var waits2 = ((Queue.Stats) fork.getStats().get().get(1)).getWaitTimes();
+
+        assertEquals(waits1.getTotalWeight(), waits2.getTotalWeight());
+        assertEquals(waits1.getMean(), waits2.getMean(), 1e-9);
+        assertEquals(waits1.getMax(), waits2.getMax(), 1e-9);
+    }
+
+    @Test
+    public void profilingTest() {
+        var producer = new Producer(FunRand.getFixed(2), "Producer");
+        var q = new Queue("Queue");
+        var device = new CompDevice(FunRand.getFixed(3), "Device");
+
+        producer.setNext(q);
+        q.setNext(device);
+
+        var model = new Model(producer);
+        var profiler = model.enableProfiling();
+        model.run(100);
+
+        // the same run as in tandemTest
+        assertEquals(33, q.getStats().getServed());
+        assertEquals(0.98, device.getStats().getUtilization(), 1e-9);
+
+        assertEquals(50, profiler.getCalls("Queue", Profiler.Method.PROCESS));
+        assertEquals(33, profiler.getCalls("Device", Profiler.Method.PROCESS));
+        assertEquals(0, profiler.getCalls("Producer", Profiler.Method.PROCESS));
+
+        // a guarded connection counts its predicator
+        var plain = createGuardedModel();
+        var profiled = createGuardedModel();
+        var guarded = profiled.enableProfiling();
+
+        plain.run(1440);
+        profiled.run(1440);
+
+        assertArrayEquals(plain.getStats().getValues(), profiled.getStats().getValues());
+        assertNotEquals(0, guarded.getCalls("Con0", Profiler.Method.PREDICATOR));
+        assertEquals(0, guarded.getCalls("Con1", Profiler.Method.PREDICATOR));
+    }
+
+    @Test
+    public void flightRecorderTest(@TempDir Path dir) throws IOException {
+        var model = createGuardedModel();
+        var file = dir.resolve("run.jfr");
+
+        try (var recording = new Recording()) {
+            recording.enable("com.example.ModelRun");
+            recording.enable("com.example.ModelStep");
+            recording.start();
+
+            model.run(1440);
+            model.run(1440);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var runs = RecordingFile.readAllEvents(file).stream()
+            .filter(e -> e.getEventType().getName().equals("com.example.ModelRun"))
+            .toList();
+        var steps = RecordingFile.readAllEvents(file).stream()
+            .filter(e -> e.getEventType().getName().equals("com.example.ModelStep"))
+            .toList();
+
+        assertEquals(2, runs.size());
+        assertEquals(1440, runs.get(1).getDouble("start"), 1e-9);
+        assertEquals(model.getEvents(), runs.get(0).getLong("events") + runs.get(1).getLong("events"));
+
+        // the first event time and every 1024th one after it
+        assertEquals((model.getEvents() + 1023) / 1024, steps.size());
+    }
+
+    private static Model createGuardedModel() {
+        var model = Tester.getBaseModelInitializer(
+            FunRand.getErlang(8, 32),
+            FunRand.getExponential(14),
+            FunRand.getExponential(12),
+            FunRand.getFixed(5),
+            FunRand.getCombined(List.of(FunRand.getNotNullNorm(22, 10), FunRand.getUniform(2, 8))),
+            FunRand.getNotNullNorm(18, 10)).get();
+
+        model.setSeed(25);
+        return model;
+    }
+
+    private static Model createTandemModel() {
+        var producer = new Producer(FunRand.getFixed(2), "Producer");
+        var q = new Queue("Queue", true);
+        var device = new CompDeviceWithCooldown(FunRand.getFixed(3), FunRand.getFixed(0.5), "Device");
+
+        producer.setNext(q);
+        q.setNext(device);
+
+        return new Model(producer);
+    }
+
+    @Test
+    public void seedTest() {
+        var st1 = createSeededModel(7);
+        var st2 = createSeededModel(7);
+        var st3 = createSeededModel(8);
+
+        assertEquals(st1, st2);
+        assertNotEquals(st1, st3);
+    }
+
+    private static String createSeededModel(long seed) {
+        var producer = new Producer(FunRand.getExponential(2), "Producer");
+        var q = new Queue("Queue");
+        var con = new Connection(new NextRulesImpl.Probability(), "Con");
+
+        producer.setNext(q);
+        q.setNext(con);
+        con.addNext(new CompDevice(FunRand.getUniform(1, 5), "Device1"), 1);
+        con.addNext(new CompDevice(FunRand.getNotNullNorm(3, 1), "Device2"), 2);
+
+        var model = new Model(producer);
+        model.setSeed(seed);
+        model.run(1000);
+
+        return model.getStats().toString();
+    }
+
+    private static Model createModel(TimeBackend time, long seed) {
+        Random r = new Random(seed);
+        Supplier<Double> work = () -> 1 + 20 * r.nextDouble();
+
+        var producer = new Producer(() -> 0.5 + 4 * r.nextDouble(), "Producer");
+        var q = new PairQueue("Queue");
+        var con = new Connection(new NextRulesImpl.Priority(), "Con");
+
+        producer.setNext(q);
+        q.setNext(con);
+
+        for (int i = 0; i < 4; i++) {
+            var device = new CompDeviceWithCooldown(work, () -> 0.3 + r.nextDouble(), "Device" + i);
+            con.addNext(device, i);
+        }
+
+        return new Model(producer, time);
+    }
+}
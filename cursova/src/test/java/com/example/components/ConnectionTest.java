@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 
 import com.example.modeling.Model;
 import com.example.modeling.components.CompDevice;
+import com.example.modeling.components.Component;
 import com.example.modeling.components.Connection;
 import com.example.modeling.components.Producer;
 import com.example.modeling.components.Queue;
@@ -146,4 +147,51 @@ public class ConnectionTest
 
         assertTrue( st1.getServed() == 0 );
     }
+
+    @Test
+    public void leftTimeTicksTest()
+    {
+        var rules = new NextRulesImpl.Priority();
+        var conn = new Connection(rules, "Connection");
+        var device = new CompDevice(FunRand.getFixed(2.5), "Device");
+
+        conn.addNext(device, 1);
+
+        assertEquals(Component.IDLE, conn.leftTimeTicks());
+        assertTrue( conn.getLeftTime().isEmpty() );
+
+        device.process();
+
+        assertEquals(2_500_000, conn.leftTimeTicks());
+        assertEquals(Decimal6f.valueOf(2.5), conn.getLeftTime().get());
+
+        rules.setPredicator(() -> false);
+
+        assertEquals(Component.BLOCKED, conn.leftTimeTicks());
+        assertTrue( conn.isBusy() );
+    }
+
+    @Test
+    public void availabilityTest()
+    {
+        var rules = new NextRulesImpl.Priority();
+        var conn = new Connection(rules, "Connection");
+        var open = new boolean[] { true };
+
+        rules.setPredicator(() -> open[0]);
+
+        assertEquals(0.0, conn.getStats().getAvailability());
+
+        conn.run(Decimal6f.valueOf(3));
+        open[0] = false;
+        conn.run(Decimal6f.valueOf(1));
+
+        assertEquals(0.75, conn.getStats().getAvailability(), 1e-9);
+
+        conn.getStats().clear();
+        conn.run(Decimal6f.valueOf(2));
+
+        assertEquals(0.0, conn.getStats().getAvailability(), 1e-9);
+        assertEquals(2, conn.getStats().getTotalTime(), 1e-9);
+    }
 }
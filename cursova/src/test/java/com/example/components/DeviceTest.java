@@ -29,6 +29,11 @@ public class DeviceTest
         assertEquals(1_000_000, st.getServed());
         assertEquals(time, st.getBusyTime(), 0.01);
         assertEquals(0, st.getTotal() - st.getBusyTime(), 0.01);
+
+        assertEquals(1_000_000, st.getServiceTimes().getTotalWeight(), 1e-9);
+        assertEquals(time / 1_000_000, st.getServiceTimes().getMean(), 1e-6);
+        assertEquals(50.5, st.getServiceTimes().getP50(), 1.5);
+        assertEquals(95.05, st.getServiceTimes().getP95(), 2.0);
     }
 
     @Test
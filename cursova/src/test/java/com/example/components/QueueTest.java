@@ -1,7 +1,12 @@
 package com.example.components;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Duration;
+
 import org.decimal4j.immutable.Decimal6f;
 import org.junit.jupiter.api.Test;
 
@@ -58,4 +63,65 @@ public class QueueTest
         assertTrue( queue2.getSize() == 1);
         assertTrue( device.getLeftTime().isPresent() );
     }
+
+    @Test
+    public void statsTest()
+    {
+        var queue = new Queue("Queue");
+
+        // sizes 1, 2, 3, 2 for 1, 2, 3, 4 time units
+        queue.process();
+        queue.run(Decimal6f.valueOf(1));
+        queue.process();
+        queue.run(Decimal6f.valueOf(2));
+        queue.process();
+        queue.run(Decimal6f.valueOf(3));
+        queue.setSize(2);
+        queue.run(Decimal6f.valueOf(4));
+
+        var st = queue.getStats();
+
+        assertEquals(3, st.getMaxSize());
+        assertEquals(6, st.getTimeAtSize(2), 1e-9);
+        assertEquals(1 + 4 + 9 + 8, st.getTotalWaitTime(), 1e-9);
+        assertEquals(0 + 2 + 3 + 4, st.getTotalBatchWaitTime(2), 1e-9);
+        assertEquals(3, st.getTotalBatchWaitTime(3), 1e-9);
+        assertEquals(2.2, st.getAverageQueueSize(), 1e-9);
+        assertEquals(2, st.getSizeHistogram().getP50());
+        assertEquals(3, st.getSizeHistogram().getP95());
+
+        st.registerBatchSize(3);
+        queue.run(Decimal6f.valueOf(1));
+
+        assertEquals(3, st.getTotalBatchWaitTime(3), 1e-9);
+        assertEquals(24, st.getTotalWaitTime(), 1e-9);
+    }
+
+    @Test
+    public void trackedSetSizeTest()
+    {
+        var queue = new Queue("Queue", true);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            // grows the ring buffer past its initial 16 slots
+            queue.setSize(40);
+            assertEquals(40, queue.getSize());
+            assertEquals(41, queue.getState().length);
+
+            queue.setSize(3);
+            assertEquals(3, queue.getSize());
+            assertArrayEquals(new long[] { 3, 0, 0, 0 }, queue.getState());
+
+            queue.setSize(5);
+            assertEquals(5, queue.getSize());
+
+            queue.dequeue();
+            queue.setSize(0);
+            assertEquals(0, queue.getSize());
+            assertArrayEquals(new long[] { 0 }, queue.getState());
+        });
+
+        // only the dequeued request has its wait recorded
+        assertEquals(1, queue.getStats().getWaitTimes().getTotalWeight(), 1e-9);
+    }
 }
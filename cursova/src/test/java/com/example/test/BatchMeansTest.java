@@ -0,0 +1,78 @@
+package com.example.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.modeling.Model;
+import com.example.modeling.components.CompDevice;
+import com.example.modeling.components.Producer;
+import com.example.modeling.components.Queue;
+import com.example.modeling.utils.FunRand;
+
+public class BatchMeansTest {
+
+    @Test
+    public void quantileTest() {
+        assertEquals(1.959964, BatchMeans.normalQuantile(0.975), 1e-6);
+        assertEquals(-2.326348, BatchMeans.normalQuantile(0.01), 1e-6);
+        assertEquals(2.093024, BatchMeans.studentQuantile(0.975, 19), 1e-4);
+        assertEquals(2.570582, BatchMeans.studentQuantile(0.975, 5), 1e-3);
+    }
+
+    @Test
+    public void batchSizeTest() {
+        Random r = new Random(1);
+        double[] correlated = new double[1024];
+        double[] independent = new double[1024];
+
+        for (int i = 1; i < correlated.length; i++) {
+            correlated[i] = 0.9 * correlated[i - 1] + r.nextGaussian();
+            independent[i] = r.nextGaussian();
+        }
+
+        assertTrue(BatchMeans.lag1(correlated) > 0.8);
+        assertTrue(Math.abs(BatchMeans.lag1(independent)) < 0.1);
+        assertEquals(0, BatchMeans.lag1(new double[] {2, 2, 2, 2}));
+
+        var batchMeans = new BatchMeans(1, 1024);
+
+        assertEquals(1, batchMeans.batchSize(List.of(independent)));
+        assertTrue(batchMeans.batchSize(List.of(independent, correlated)) >= 8);
+
+        // only batches of one interval leave MIN_BATCHES of 20 intervals
+        var shortRun = new BatchMeans(1, 20);
+        double[] head = Arrays.copyOf(correlated, 20);
+
+        assertEquals(1, shortRun.batchSize(List.of(head)));
+        assertTrue(BatchMeans.worstLag1(List.of(head), 1) > BatchMeans.MAX_AUTOCORRELATION);
+    }
+
+    @Test
+    public void runTest() {
+        // M/M/1 with utilization 0.5 and an average of 0.5 requests waiting
+        var result = new BatchMeans(10, 2000).run(() -> {
+            var producer = new Producer(FunRand.getExponential(2), "Producer");
+            var q = new Queue("Queue");
+            var device = new CompDevice(FunRand.getExponential(1), "Device");
+
+            producer.setNext(q);
+            q.setNext(device);
+
+            return new Model(producer);
+        }, 7, 100, 0.95);
+
+        assertEquals(0.5, result.getMean("Device_utilization"), 3 * result.getHalfWidth("Device_utilization"));
+        assertEquals(0.5, result.getMean("Queue_avg_sz"), 3 * result.getHalfWidth("Queue_avg_sz"));
+        assertTrue(result.getBatches() >= BatchMeans.MIN_BATCHES);
+        assertEquals(0, result.getBatchTime() % 10, 1e-9);
+        assertTrue(!result.getNames().contains("total_time"));
+        assertFalse(result.isCorrelated());
+    }
+}
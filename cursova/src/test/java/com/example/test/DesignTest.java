@@ -0,0 +1,40 @@
+package com.example.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.test.Design.Factor;
+
+public class DesignTest {
+    private static final Factor<Integer> a = new Factor<>("a", 1, 2, 3);
+    private static final Factor<String> b = new Factor<>("b", "x", "y");
+    private static final Factor<Double> c = new Factor<>("c", 0.5);
+
+    @Test
+    public void fullFactorialTest() {
+        var design = Design.fullFactorial(a, b);
+
+        assertEquals(6, design.size());
+        assertEquals(List.of("1x", "1y", "2x", "2y", "3x", "3y"), design.getPoints().stream()
+            .map(p -> p.get(a) + p.get(b))
+            .toList());
+        assertEquals("5:{a=3, b=y}", design.getPoints().get(5).toString());
+    }
+
+    @Test
+    public void oneAtATimeTest() {
+        var design = Design.oneAtATime(a, b, c);
+
+        assertEquals(4, design.size());
+        assertEquals(List.of("1x", "2x", "3x", "1y"), design.getPoints().stream()
+            .map(p -> p.get(a) + p.get(b))
+            .toList());
+
+        // factors out of the design are at their base level
+        var other = new Factor<>("other", 7, 8);
+        assertEquals(7, design.getPoints().get(3).get(other));
+    }
+}
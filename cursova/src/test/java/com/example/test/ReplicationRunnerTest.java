@@ -0,0 +1,121 @@
+package com.example.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.modeling.utils.FunRand;
+
+public class ReplicationRunnerTest {
+
+    @Test
+    public void threadsTest() {
+        var init = Tester.getBaseModelInitializer(
+            FunRand.getErlang(8, 32),
+            FunRand.getExponential(14),
+            FunRand.getExponential(12),
+            FunRand.getFixed(5),
+            FunRand.getCombined(List.of(
+                FunRand.getNotNullNorm(22, 10), 
+                FunRand.getUniform(2, 8))
+            ),
+            FunRand.getNotNullNorm(18, 10)
+        );
+
+        var st1 = new ReplicationRunner(7, 1).run(20, init, 1000, 1440);
+        var st2 = new ReplicationRunner(7, 4).run(20, init, 1000, 1440);
+
+        assertEquals(20, st1.size());
+
+        for (int i = 0; i < st1.size(); i++) {
+            assertEquals(st1.get(i).toString(), st2.get(i).toString());
+        }
+    }
+
+    @Test
+    public void forkTest() {
+        var init = Tester.getBaseModelInitializer(
+            FunRand.getErlang(8, 32),
+            FunRand.getExponential(14),
+            FunRand.getExponential(12),
+            FunRand.getFixed(5),
+            FunRand.getUniform(20, 30),
+            FunRand.getNotNullNorm(18, 10)
+        );
+
+        var st1 = new ReplicationRunner(7, 1).run(10, init, 1000, 1440, 3);
+        var st2 = new ReplicationRunner(7, 4).run(10, init, 1000, 1440, 3);
+
+        for (int i = 0; i < st1.size(); i++) {
+            assertEquals(2440, st1.get(i).getTotalTime(), 1e-9);
+            assertEquals(st1.get(i).toString(), st2.get(i).toString());
+        }
+
+        // replications forked from one warm-up still differ
+        assertNotEquals(st1.get(0).toString(), st1.get(3).toString());
+    }
+
+    @Test
+    public void commonRandomNumbersTest() {
+        var base = Tester.getBaseModelInitializer(
+            FunRand.getErlang(8, 32),
+            FunRand.getExponential(14),
+            FunRand.getExponential(12),
+            FunRand.getFixed(5),
+            FunRand.getUniform(20, 30),
+            FunRand.getNotNullNorm(18, 10)
+        );
+        var variant = Tester.getBaseModelInitializer(
+            FunRand.getErlang(8, 32),
+            FunRand.getExponential(14),
+            FunRand.getExponential(12),
+            FunRand.getFixed(5),
+            FunRand.getUniform(20, 30),
+            FunRand.getNotNullNorm(9, 5)
+        );
+
+        var runner = new ReplicationRunner(7, 1);
+        var st1 = runner.run(5, base, 0, 1440);
+        var st2 = runner.run(5, variant, 0, 1440);
+
+        for (int i = 0; i < st1.size(); i++) {
+            // the variants only differ in the truck cooldown, so they see the same arrivals
+            assertEquals(st1.get(i).get().get(0).toString(), st2.get(i).get().get(0).toString());
+            assertNotEquals(st1.get(i).toString(), st2.get(i).toString());
+        }
+    }
+
+    @Test
+    public void designTest() {
+        var design = Design.oneAtATime(Tester.truckCooldowns, Tester.truckCounts);
+        var runner = new ReplicationRunner(7, 4);
+
+        var points = new ArrayList<Integer>();
+        var stats = new ArrayList<String>();
+
+        runner.forEach(design, 6,
+            p -> ReplicationRunner.replication(Tester.getModelInitializer(p), 0, 1440),
+            (p, st) -> {
+                points.add(p.getIndex());
+                stats.add(st.toString());
+            });
+
+        assertEquals(List.of(0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 1, 1, 2, 2, 2, 2, 2, 2), points);
+
+        // every point gives what it gives on its own
+        for (var p : design.getPoints()) {
+            var alone = runner.run(6, Tester.getModelInitializer(p), 0, 1440);
+
+            for (int i = 0; i < alone.size(); i++) {
+                assertEquals(alone.get(i).toString(), stats.get(p.getIndex() * 6 + i));
+            }
+        }
+
+        assertTrue(stats.get(12).contains("Truck5"));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.modeling.components.Connection;
+import com.example.modeling.utils.NextRulesImpl;
+
+public class ResultCacheTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void descriptionTest() {
+        var points = Design.fullFactorial(Tester.truckCooldowns, Tester.truckCounts).getPoints();
+        var base = Tester.getModelInitializer(points.get(0)).get().getDescription();
+
+        assertEquals(base, Tester.getModelInitializer(points.get(0)).get().getDescription());
+
+        for (int i = 1; i < points.size(); i++) {
+            assertNotEquals(base, Tester.getModelInitializer(points.get(i)).get().getDescription());
+        }
+    }
+
+    @Test
+    public void predicatorTest() {
+        Supplier<Boolean> check = () -> true;
+
+        assertEquals(describe(Connection.NextRules.describe("rule", check)), describe(Connection.NextRules.describe("rule", check)));
+        assertNotEquals(describe(Connection.NextRules.describe("rule", check)), describe(Connection.NextRules.describe("rule2", check)));
+
+        // undescribed predicators are told apart by identity
+        assertNotEquals(describe(() -> true), describe(() -> true));
+    }
+
+    private static String describe(Supplier<Boolean> predicator) {
+        var rule = new NextRulesImpl.Priority();
+        rule.setPredicator(predicator);
+
+        return new Connection(rule, "Con").getDescription();
+    }
+
+    @Test
+    public void noSamplesTest() {
+        var cache = new ResultCache(this.dir.resolve("cache").toString());
+        var runs = new AtomicInteger();
+
+        cache.forEach(new ReplicationRunner(7, 2), Design.oneAtATime(Tester.truckCounts), 0,
+            p -> ResultCache.key(p.getIndex()),
+            p -> (i, seed) -> {
+                runs.incrementAndGet();
+                return null;
+            },
+            (p, names, values) -> runs.incrementAndGet());
+
+        assertEquals(0, runs.get());
+        assertFalse(Files.exists(this.dir.resolve("cache")));
+    }
+
+    @Test
+    public void cacheTest() {
+        var cache = new ResultCache(this.dir.toString());
+        var design = Design.oneAtATime(Tester.truckCounts);
+        var runs = new AtomicInteger();
+
+        var first = run(cache, new ReplicationRunner(7, 2), design, runs);
+        var second = run(cache, new ReplicationRunner(7, 2), design, runs);
+
+        // the second pass is read from the cache
+        assertEquals(10, runs.get());
+        assertEquals(10, second.size());
+
+        for (int i = 0; i < first.size(); i++) {
+            assertArrayEquals(first.get(i), second.get(i));
+        }
+
+        // another seed is another entry
+        run(cache, new ReplicationRunner(8, 2), design, runs);
+        assertEquals(20, runs.get());
+    }
+
+    private static List<double[]> run(ResultCache cache, ReplicationRunner runner, Design design, AtomicInteger runs) {
+        var rows = new ArrayList<double[]>();
+
+        cache.forEach(runner, design, 5,
+            p -> ResultCache.key(Tester.getModelInitializer(p).get().getDescription(), 0, 1440),
+            p -> {
+                var replication = ReplicationRunner.replication(Tester.getModelInitializer(p), 0, 1440);
+
+                return (i, seed) -> {
+                    runs.incrementAndGet();
+                    return replication.run(i, seed);
+                };
+            },
+            (p, names, values) -> rows.add(values));
+
+        return rows;
+    }
+}
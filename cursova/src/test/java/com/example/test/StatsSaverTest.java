@@ -0,0 +1,110 @@
+package com.example.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.modeling.Model.ModelStats;
+import com.example.modeling.utils.FunRand;
+
+public class StatsSaverTest {
+    @TempDir
+    Path dir;
+
+    private static ReplicationRunner.Replication<ModelStats> replication() {
+        var init = Tester.getBaseModelInitializer(
+            FunRand.getErlang(8, 32),
+            FunRand.getExponential(14),
+            FunRand.getExponential(12),
+            FunRand.getFixed(5),
+            FunRand.getUniform(20, 30),
+            FunRand.getNotNullNorm(18, 10)
+        );
+
+        return ReplicationRunner.replication(init, 0, 1440);
+    }
+
+    @Test
+    public void csvTest() throws IOException {
+        var file = this.dir.resolve("stats.csv");
+
+        try (var saver = new StatsSaver(file.toString())) {
+            new ReplicationRunner(7, 2).forEach(20, replication(), stats -> saver.addStats(stats, 3));
+        }
+
+        var lines = Files.readAllLines(file);
+
+        assertEquals(21, lines.size());
+        assertTrue(lines.get(0).startsWith("test_mask,total_time,Producer1_utilization,Producer1_served,"));
+        assertTrue(lines.get(1).startsWith("3,1440,"));
+        assertEquals(lines.get(0).split(",").length, lines.get(20).split(",").length);
+    }
+
+    @Test
+    public void xlsxTest() throws IOException {
+        var file = this.dir.resolve("stats.xlsx");
+
+        try (var saver = new StatsSaver(file.toString())) {
+            new ReplicationRunner(7, 2).forEach(120, replication(), stats -> saver.addStats(stats, 1));
+        }
+
+        try (var workbook = new XSSFWorkbook(new FileInputStream(file.toFile()))) {
+            var sheet = workbook.getSheet("Data");
+
+            assertEquals(120, sheet.getLastRowNum());
+            assertEquals("test_mask", sheet.getRow(0).getCell(0).getStringCellValue());
+            assertEquals(1, sheet.getRow(120).getCell(0).getNumericCellValue());
+            assertEquals(1440, sheet.getRow(120).getCell(1).getNumericCellValue(), 1e-9);
+        }
+    }
+
+    @Test
+    public void binaryTest() throws IOException {
+        var file = this.dir.resolve("stats.bin");
+        var rows = new ArrayList<double[]>();
+
+        // more rows than the initial capacity, so the columns are moved
+        try (var saver = new StatsSaver(file.toString())) {
+            new ReplicationRunner(7, 2).forEach(300, replication(), stats -> {
+                saver.addStats(stats, 2);
+                rows.add(StatsSaver.values(stats, 2));
+            });
+        }
+
+        try (var matrix = ResultMatrix.read(file.toString())) {
+            assertEquals(300, matrix.getRows());
+            assertEquals("test_mask", matrix.getColumns().get(0));
+            assertEquals(rows.get(0).length, matrix.getColumns().size());
+
+            for (int i = 0; i < rows.size(); i++) {
+                assertArrayEquals(rows.get(i), matrix.getRow(i));
+            }
+
+            assertEquals(1440, matrix.get("total_time", 299));
+            assertEquals(300 * Double.BYTES, matrix.getColumn("total_time").byteSize());
+            assertThrows(IndexOutOfBoundsException.class, () -> matrix.getRow(300));
+        }
+
+        // a count of rows beyond the file, above 2^31 as well, is rejected
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(0, 1L << 40), 16);
+        }
+
+        assertThrows(IOException.class, () -> ResultMatrix.read(file.toString()));
+    }
+}
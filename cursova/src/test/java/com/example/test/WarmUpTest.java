@@ -0,0 +1,50 @@
+package com.example.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.modeling.utils.FunRand;
+
+public class WarmUpTest {
+
+    @Test
+    public void mserTest() {
+        Random r = new Random(1);
+        double[] series = new double[500];
+
+        for (int i = 0; i < series.length; i++) {
+            double trend = i < 100 ? 10.0 * (100 - i) / 100 : 0;
+            series[i] = trend + r.nextGaussian();
+        }
+
+        int d = WarmUp.mser(series, 5);
+
+        assertTrue(d >= 50 && d <= 150, "truncation " + d);
+        assertEquals(0, WarmUp.mser(new double[] {1, 1, 1, 1, 1, 1, 1, 1, 1, 1}, 5));
+    }
+
+    @Test
+    public void estimateTest() {
+        var init = Tester.getBaseModelInitializer(
+            FunRand.getErlang(8, 32),
+            FunRand.getExponential(14),
+            FunRand.getExponential(12),
+            FunRand.getFixed(5),
+            FunRand.getCombined(List.of(
+                FunRand.getNotNullNorm(22, 10), 
+                FunRand.getUniform(2, 8))
+            ),
+            FunRand.getNotNullNorm(18, 10)
+        );
+
+        double time = new WarmUp(60, 100, 4).estimate(new ReplicationRunner(7, 1), init);
+
+        assertTrue(time >= 0 && time <= 60 * 50);
+        assertEquals(0, time % (60 * 5), 1e-9);
+    }
+}
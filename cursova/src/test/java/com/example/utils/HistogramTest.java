@@ -0,0 +1,64 @@
+package com.example.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.modeling.utils.Histogram;
+
+public class HistogramTest {
+
+    @Test
+    public void quantileTest() {
+        var histogram = new Histogram(0.001);
+
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 0.01);
+        }
+
+        assertEquals(10_000, histogram.getTotalWeight(), 1e-9);
+        assertEquals(50.005, histogram.getMean(), 1e-9);
+        assertEquals(50, histogram.getP50(), 50 * 0.02);
+        assertEquals(95, histogram.getP95(), 95 * 0.02);
+        assertEquals(99, histogram.getP99(), 99 * 0.02);
+        assertEquals(100, histogram.getQuantile(1), 1e-9);
+        assertEquals(0.01, histogram.getQuantile(0), 1e-9);
+    }
+
+    @Test
+    public void weightedTest() {
+        var histogram = new Histogram(1);
+
+        // size 0 for 90 time units, size 3 for 9, size 10 for 1
+        histogram.record(0, 90);
+        histogram.record(3, 9);
+        histogram.record(10, 1);
+
+        assertEquals(0, histogram.getP50());
+        assertEquals(3, histogram.getP95());
+        assertEquals(3, histogram.getQuantile(0.99));
+        assertEquals(10, histogram.getQuantile(0.995));
+        assertEquals(0.37, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void mergeTest() {
+        var h1 = new Histogram(0.001);
+        var h2 = new Histogram(0.001);
+        var all = new Histogram(0.001);
+
+        for (int i = 0; i < 1000; i++) {
+            double value = Math.exp(i / 100.0);
+
+            (i % 2 == 0 ? h1 : h2).record(value);
+            all.record(value);
+        }
+
+        h1.merge(h2);
+
+        assertEquals(all.getTotalWeight(), h1.getTotalWeight());
+        assertEquals(all.getP50(), h1.getP50());
+        assertEquals(all.getP99(), h1.getP99());
+        assertEquals(all.getMax(), h1.getMax());
+    }
+}
@@ -6,6 +6,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
@@ -46,6 +49,27 @@ public class App
             System.out.println(i);
         }
         sim2.saveResults("file2.xlsx");
+
+        /////
+        var scaling = new ScalingBenchmark();
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int nThreads = 1; nThreads <= maxThreads; nThreads *= 2) {
+            scaling.simulate(() -> createModel2(1000, 10, Model.getExponential(25)), 64, nThreads);
+            System.out.println(nThreads);
+        }
+        scaling.saveResults("scaling.xlsx");
+
+        /////
+        var suite = new ScalingSuite(Model.getExponential(25), 2, 5);
+        for (var topology : ScalingSuite.Topology.values()) {
+            for (int i = 1000; i <= 1_000_000; i *= 10) {
+                for (var engine : ScalingSuite.Engine.values()) {
+                    suite.simulate(topology, i, engine);
+                    System.out.println(suite.records.getLast());
+                }
+            }
+        }
+        suite.saveResults("suite.xlsx");
     }
 
     public static Component[] createModel1(int nSystem, DeviceRand device) {
@@ -111,26 +135,46 @@ public class App
             long time = System.currentTimeMillis();
 
             for (int i = 0; i < nSamples; i++) {
-                model[0].process();
-                
-                var t = this.getWorkTime(model);
-                while (t.isPresent()) {
-                    this.runnAllElems(model, t.get());
-                    t = getWorkTime(model);
-                }
+                runSample(model);
             }
 
             double result = (double)(System.currentTimeMillis() - time) /(double)nSamples; 
             records.add(new Record(nSystem, result / 1000.0));
         }
 
-        private void runnAllElems(Component[] model, double time) {
+        /*
+         * Pushes one request into the model and runs it until all elements are free
+         */
+        static void runSample(Component[] model) {
+            model[0].process();
+
+            while (step(model)) {
+                // until all elements are free
+            }
+        }
+
+        /*
+         * Runs all elements up to the nearest finish of a work,
+         * returns false if all elements are free
+         */
+        static boolean step(Component[] model) {
+            var t = getWorkTime(model);
+
+            if (t.isEmpty()) {
+                return false;
+            }
+
+            runnAllElems(model, t.get());
+            return true;
+        }
+
+        private static void runnAllElems(Component[] model, double time) {
             List.of(model).reversed().forEach(elem -> {
                 elem.run(time);
             });
         }
 
-        private Optional<Double> getWorkTime(Component[] model) {
+        private static Optional<Double> getWorkTime(Component[] model) {
             double time = Double.MAX_VALUE;
             for (Component elem : model) {
                 Optional<Double> elemTime = elem.getWorkTime();
@@ -182,6 +226,86 @@ public class App
         }
     }
 
+    /*
+     * Runs independent models on a pool of the given size,
+     * every sample builds its own model so threads share nothing
+     */
+    public static class ScalingBenchmark {
+        ArrayList<ThreadsRecord> records = new ArrayList<>();
+
+        public void simulate(Supplier<Component[]> init, int nSamples, int nThreads) {
+            ForkJoinPool pool = new ForkJoinPool(nThreads);
+            long time = System.nanoTime();
+
+            try {
+                pool.submit(() -> IntStream.range(0, nSamples).parallel().forEach(i -> {
+                    Simulator.runSample(init.get());
+                })).join();
+            } finally {
+                pool.shutdown();
+            }
+
+            double seconds = (double)(System.nanoTime() - time) / 1e9;
+            double throughput = (double)nSamples / seconds;
+
+            double speedup = records.isEmpty()
+                ? 1.0
+                : throughput / records.getFirst().throughput;
+
+            records.add(new ThreadsRecord(nThreads, throughput, speedup));
+        }
+
+        public void saveResults(String filename) {
+            File file = new File(filename);
+
+            if (file.exists()) {
+                if (!file.delete()) {
+                    System.err.println("Delete file error: " + filename);
+                    return;
+                }
+            }
+
+            try (
+                Workbook workbook = new XSSFWorkbook(); 
+                FileOutputStream fileOut = new FileOutputStream(filename)
+            ) {
+                Sheet sheet = workbook.createSheet("Data");
+
+                Row headerRow = sheet.createRow(0);
+
+                headerRow.createCell(0).setCellValue("threads");
+                headerRow.createCell(1).setCellValue("samples/s");
+                headerRow.createCell(2).setCellValue("speedup");
+
+                int rowNum = 1;
+                for (ThreadsRecord record : records) {
+                    Row row = sheet.createRow(rowNum++);
+
+                    row.createCell(0).setCellValue(record.nThreads);
+                    row.createCell(1).setCellValue(record.throughput);
+                    row.createCell(2).setCellValue(record.speedup);
+                }
+
+                workbook.write(fileOut);
+                System.out.println("File created: " + filename);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public static class ThreadsRecord {
+        public int nThreads;
+        public double throughput;
+        public double speedup;
+
+        public ThreadsRecord(int nThreads, double throughput, double speedup) {
+            this.nThreads = nThreads;
+            this.throughput = throughput;
+            this.speedup = speedup;
+        }
+    }
+
     public static class Record {
         public int nSystem;
         public double time;
@@ -0,0 +1,394 @@
+package com.example;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import com.example.modeling.components.CompDevice;
+import com.example.modeling.components.CompiledModel;
+import com.example.modeling.components.Component;
+import com.example.modeling.components.Connection;
+import com.example.modeling.components.Model;
+import com.example.modeling.components.Queue;
+import com.example.modeling.components.device.Device.DeviceRand;
+
+/*
+ * Scaling curve of the engine: a network of the given topology and size
+ * is run for a fixed wall time, first to warm up the JIT, then measured.
+ * An event is one step of the simulator, requests are pushed into the
+ * sources again whenever all elements are free. The memory of a network
+ * is the heap it adds after a collection, with its compiled arrays
+ */
+public class ScalingSuite {
+    // devices per stage or branches, as in createModel2
+    static final int WIDTH = 10;
+
+    final DeviceRand device;
+    final long warmUpNanos;
+    final long measureNanos;
+
+    ArrayList<Record> records = new ArrayList<>();
+
+    public ScalingSuite(DeviceRand device, double warmUpSeconds, double measureSeconds) {
+        this.device = device;
+        this.warmUpNanos = (long)(warmUpSeconds * 1e9);
+        this.measureNanos = (long)(measureSeconds * 1e9);
+    }
+
+    public enum Topology {
+        /*
+         * Queue -> Device pairs in a line, createModel1
+         */
+        TANDEM {
+            @Override
+            Network create(int nComponents, DeviceRand device) {
+                var elems = App.createModel1(Math.max(1, nComponents / 2), device);
+                return new Network(elems, elems[0]);
+            }
+        },
+
+        /*
+         * Stages of Queue -> Connection -> WIDTH devices,
+         * every device of a stage feeds the next queue, createModel2
+         */
+        FAN_OUT {
+            @Override
+            Network create(int nComponents, DeviceRand device) {
+                var elems = App.createModel2(Math.max(1, nComponents / (WIDTH + 2)), WIDTH, device);
+                return new Network(elems, elems[0]);
+            }
+        },
+
+        /*
+         * WIDTH tandem branches merging into one Queue -> Device sink,
+         * every branch gets its own request
+         */
+        FAN_IN {
+            @Override
+            Network create(int nComponents, DeviceRand device) {
+                int length = Math.max(1, (nComponents - 2) / (2 * WIDTH));
+                var elems = new Component[2 * WIDTH * length + 2];
+                var sources = new Component[WIDTH];
+
+                var sink = new Queue("Sink");
+                var sinkDevice = new CompDevice(device, "SinkDevice");
+                sink.setNext(sinkDevice);
+
+                for (int b = 0; b < WIDTH; b++) {
+                    var branch = App.createModel1(length, device);
+                    branch[branch.length - 1].setNext(sink);
+
+                    System.arraycopy(branch, 0, elems, b * branch.length, branch.length);
+                    sources[b] = branch[0];
+                }
+
+                elems[elems.length - 2] = sink;
+                elems[elems.length - 1] = sinkDevice;
+
+                return new Network(elems, sources);
+            }
+        },
+
+        /*
+         * Stages of WIDTH Queue -> Connection pairs, every connection
+         * leads to all WIDTH devices of its stage and the j-th device
+         * feeds the j-th queue of the next stage
+         */
+        MESH {
+            @Override
+            Network create(int nComponents, DeviceRand device) {
+                int nStages = Math.max(1, nComponents / (3 * WIDTH));
+                var elems = new Component[nStages * 3 * WIDTH];
+                var sources = new Component[WIDTH];
+
+                CompDevice[] lastDevices = null;
+
+                for (int s = 0; s < nStages; s++) {
+                    int offset = s * 3 * WIDTH;
+
+                    var devices = new CompDevice[WIDTH];
+                    for (int j = 0; j < WIDTH; j++) {
+                        devices[j] = new CompDevice(device, "Dev" + s + "-" + j);
+                        elems[offset + 2 * WIDTH + j] = devices[j];
+                    }
+
+                    for (int j = 0; j < WIDTH; j++) {
+                        var q = new Queue("Q" + s + "-" + j);
+                        var con = new Connection(new Model.Priority(), "Con" + s + "-" + j);
+
+                        q.setNext(con);
+                        for (var dev : devices) {
+                            con.addNext(dev, 1);
+                        }
+
+                        if (lastDevices != null) {
+                            lastDevices[j].setNext(q);
+                        } else {
+                            sources[j] = q;
+                        }
+
+                        elems[offset + 2 * j] = q;
+                        elems[offset + 2 * j + 1] = con;
+                    }
+
+                    lastDevices = devices;
+                }
+
+                return new Network(elems, sources);
+            }
+        };
+
+        abstract Network create(int nComponents, DeviceRand device);
+    }
+
+    public enum Engine {
+        /*
+         * App.Simulator stepping the components
+         */
+        COMPONENTS,
+
+        /*
+         * CompiledModel of the components
+         */
+        COMPILED
+    }
+
+    public static class Network {
+        public final Component[] elems;
+        public final Component[] sources;
+
+        public Network(Component[] elems, Component... sources) {
+            this.elems = elems;
+            this.sources = sources;
+        }
+
+        void push() {
+            for (var source : this.sources) {
+                source.process();
+            }
+        }
+    }
+
+    /*
+     * Network run by the given engine
+     */
+    interface Runner {
+        /*
+         * Returns false if all elements are free
+         */
+        boolean step();
+
+        void push();
+
+        static Runner of(Network network, Engine engine) {
+            if (engine == Engine.COMPONENTS) {
+                return new Runner() {
+                    public boolean step() {
+                        return App.Simulator.step(network.elems);
+                    }
+
+                    public void push() {
+                        network.push();
+                    }
+                };
+            }
+
+            var model = CompiledModel.compile(network.elems);
+            var sources = new int[network.sources.length];
+
+            for (int i = 0; i < sources.length; i++) {
+                sources[i] = model.indexOf(network.sources[i]);
+            }
+
+            return new Runner() {
+                public boolean step() {
+                    return model.step();
+                }
+
+                public void push() {
+                    for (int source : sources) {
+                        model.process(source);
+                    }
+                }
+            };
+        }
+    }
+
+    public void simulate(Topology topology, int nComponents) {
+        simulate(topology, nComponents, Engine.COMPONENTS);
+    }
+
+    public void simulate(Topology topology, int nComponents, Engine engine) {
+        long heap = usedHeap();
+        var network = topology.create(nComponents, this.device);
+        var runner = Runner.of(network, engine);
+        double bytes = (double)(usedHeap() - heap) / network.elems.length;
+
+        run(runner, this.warmUpNanos);
+
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long time = System.nanoTime();
+
+        long events = run(runner, this.measureNanos);
+
+        double seconds = (double)(System.nanoTime() - time) / 1e9;
+
+        records.add(new Record(
+            topology.name(),
+            engine.name(),
+            network.elems.length,
+            events,
+            events / seconds,
+            seconds * 1e9 / events,
+            bytes,
+            gcCount() - gcCount,
+            gcMillis() - gcMillis));
+    }
+
+    /*
+     * Steps the network for at least the given wall time,
+     * returns the number of events
+     */
+    static long run(Runner runner, long nanos) {
+        long start = System.nanoTime();
+        long events = 0;
+
+        do {
+            if (!runner.step()) {
+                runner.push();
+            } else {
+                events++;
+            }
+        } while (System.nanoTime() - start < nanos);
+
+        return events;
+    }
+
+    private static long usedHeap() {
+        var runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+
+        return count;
+    }
+
+    private static long gcMillis() {
+        long time = 0;
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+
+        return time;
+    }
+
+    public void saveResults(String filename) {
+        File file = new File(filename);
+
+        if (file.exists()) {
+            if (!file.delete()) {
+                System.err.println("Delete file error: " + filename);
+                return;
+            }
+        }
+
+        try (
+            Workbook workbook = new XSSFWorkbook();
+            FileOutputStream fileOut = new FileOutputStream(filename)
+        ) {
+            Sheet sheet = workbook.createSheet("Data");
+
+            Row headerRow = sheet.createRow(0);
+
+            headerRow.createCell(0).setCellValue("topology");
+            headerRow.createCell(1).setCellValue("engine");
+            headerRow.createCell(2).setCellValue("components");
+            headerRow.createCell(3).setCellValue("events");
+            headerRow.createCell(4).setCellValue("events/s");
+            headerRow.createCell(5).setCellValue("ns/event");
+            headerRow.createCell(6).setCellValue("bytes/component");
+            headerRow.createCell(7).setCellValue("gc count");
+            headerRow.createCell(8).setCellValue("gc ms");
+
+            int rowNum = 1;
+            for (Record record : records) {
+                Row row = sheet.createRow(rowNum++);
+
+                row.createCell(0).setCellValue(record.topology);
+                row.createCell(1).setCellValue(record.engine);
+                row.createCell(2).setCellValue(record.nComponents);
+                row.createCell(3).setCellValue(record.events);
+                row.createCell(4).setCellValue(record.eventsPerSecond);
+                row.createCell(5).setCellValue(record.nsPerEvent);
+                row.createCell(6).setCellValue(record.bytesPerComponent);
+                row.createCell(7).setCellValue(record.gcCount);
+                row.createCell(8).setCellValue(record.gcMillis);
+            }
+
+            workbook.write(fileOut);
+            System.out.println("File created: " + filename);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static class Record {
+        public String topology;
+        public String engine;
+        public int nComponents;
+        public long events;
+        public double eventsPerSecond;
+        public double nsPerEvent;
+        public double bytesPerComponent;
+        public long gcCount;
+        public long gcMillis;
+
+        public Record(String topology, String engine, int nComponents, long events, double eventsPerSecond,
+                double nsPerEvent, double bytesPerComponent, long gcCount, long gcMillis) {
+            this.topology = topology;
+            this.engine = engine;
+            this.nComponents = nComponents;
+            this.events = events;
+            this.eventsPerSecond = eventsPerSecond;
+            this.nsPerEvent = nsPerEvent;
+            this.bytesPerComponent = bytesPerComponent;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        public String toString() {
+            return String.format(
+                    "%s:{engine=%s, components=%d, events=%d, events/s=%.1f, ns/event=%.0f, bytes/component=%.1f, gc=%d (%d ms)}",
+                    this.topology,
+                    this.engine,
+                    this.nComponents,
+                    this.events,
+                    this.eventsPerSecond,
+                    this.nsPerEvent,
+                    this.bytesPerComponent,
+                    this.gcCount,
+                    this.gcMillis);
+        }
+    }
+}
@@ -47,6 +47,10 @@ public class CompDevice implements Component {
         return this.device.getWorkTime();
     }
 
+    public Device getDevice() {
+        return this.device;
+    }
+
     @Override
     public Device.Stats getStats() {
         return this.device.getStats();
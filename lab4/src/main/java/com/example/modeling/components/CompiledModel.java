@@ -0,0 +1,411 @@
+package com.example.modeling.components;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Optional;
+
+import com.example.modeling.components.device.Device.DeviceRand;
+import com.example.utils.Pair;
+
+/*
+ * A built model flattened into primitive arrays, one slot per component
+ * in the order of the given array. Queues, devices and connections choosing
+ * by Model.Priority are supported.
+ *
+ * A step goes to the nearest finish of a work like App.Simulator does, but
+ * instead of running every component it visits only the finishing devices
+ * and the queues holding requests, in the same reverse order. Devices keep
+ * the absolute time their work finishes at on a heap, idle and busy time
+ * are accounted when a device changes state, so a step costs nothing for
+ * the components it doesn't change. Links are expected to lead forward
+ * in the array, as in the models of App. The results are those of the
+ * component engine up to rounding. Stats are gathered in the arrays
+ * and added to the Stats objects by writeBack()
+ */
+public final class CompiledModel {
+    static final byte QUEUE = 0;
+    static final byte DEVICE = 1;
+    static final byte CONNECTION = 2;
+
+    private final Component[] elems;
+    private final IdentityHashMap<Component, Integer> indexes = new IdentityHashMap<>();
+
+    private final byte[] kind;
+    // successor of a queue or a device, -1 if none
+    private final int[] next;
+    // children of connection i are children[childStart[i]..childStart[i + 1]),
+    // sorted by score, the last free one is chosen
+    private final int[] childStart;
+    private final int[] children;
+
+    // state
+    private final DeviceRand[] rand;
+    private final boolean[] busy;
+    private final double[] finish;
+    private final long[] size;
+    private double now = 0.0;
+
+    // devices by finish time
+    private int[] heap;
+    private int heapSize = 0;
+
+    // queues holding requests, and the components left to visit by the current step
+    private final BitSet waiting;
+    private final BitSet active;
+
+    // stats since the last writeBack(), time is accounted up to last[i]
+    private final double[] last;
+    private final double[] busyTime;
+    private final double[] totalTime;
+    private final long[] requests;
+    private final long[] served;
+
+    private CompiledModel(Component[] elems) {
+        int n = elems.length;
+
+        this.elems = elems.clone();
+        this.kind = new byte[n];
+        this.next = new int[n];
+        this.childStart = new int[n + 1];
+        this.rand = new DeviceRand[n];
+        this.busy = new boolean[n];
+        this.finish = new double[n];
+        this.size = new long[n];
+        this.waiting = new BitSet(n);
+        this.active = new BitSet(n);
+        this.last = new double[n];
+        this.busyTime = new double[n];
+        this.totalTime = new double[n];
+        this.requests = new long[n];
+        this.served = new long[n];
+
+        for (int i = 0; i < n; i++) {
+            if (this.indexes.put(elems[i], i) != null) {
+                throw new IllegalArgumentException("Component is given twice: " + elems[i].getName());
+            }
+        }
+
+        var allChildren = new ArrayList<Integer>();
+        int nDevices = 0;
+
+        for (int i = 0; i < n; i++) {
+            var elem = elems[i];
+            this.next[i] = -1;
+            this.childStart[i] = allChildren.size();
+
+            if (elem instanceof Queue q) {
+                this.kind[i] = QUEUE;
+                this.size[i] = q.getSize();
+                this.next[i] = this.indexOfNext(q);
+
+            } else if (elem instanceof CompDevice dev && elem.getClass() == CompDevice.class) {
+                this.kind[i] = DEVICE;
+                this.rand[i] = dev.getDevice().getRand();
+                this.next[i] = this.indexOfNext(dev);
+                nDevices++;
+
+            } else if (elem instanceof Connection con && con.getPriority().getClass() == Model.Priority.class) {
+                this.kind[i] = CONNECTION;
+
+                // stable, equal scores keep the order they were added in
+                var sorted = new ArrayList<>(con.getNextWithScores());
+                sorted.sort(Comparator.comparingLong(Pair::get1));
+
+                for (var pair : sorted) {
+                    allChildren.add(this.indexOf(pair.get0()));
+                }
+
+            } else {
+                throw new IllegalArgumentException("Can't compile " + elem.getClass().getSimpleName() + " " + elem.getName());
+            }
+        }
+
+        this.childStart[n] = allChildren.size();
+        this.children = allChildren.stream().mapToInt(Integer::intValue).toArray();
+        this.heap = new int[Math.max(nDevices, 1)];
+
+        for (int i = 0; i < n; i++) {
+            if (this.kind[i] == QUEUE && this.size[i] > 0) {
+                this.waiting.set(i);
+            } else if (this.kind[i] == DEVICE) {
+                var time = ((CompDevice) elems[i]).getWorkTime();
+
+                if (time.isPresent()) {
+                    this.start(i, time.get());
+                }
+            }
+        }
+    }
+
+    public static CompiledModel compile(Component[] elems) {
+        return new CompiledModel(elems);
+    }
+
+    public int indexOf(Component elem) {
+        Integer index = this.indexes.get(elem);
+
+        if (index == null) {
+            throw new IllegalArgumentException("Component is not in the model: " + elem.getName());
+        }
+
+        return index;
+    }
+
+    private int indexOfNext(Component elem) {
+        Optional<Component> next = elem.getNextChosen();
+
+        return next.isPresent()
+            ? this.indexOf(next.get())
+            : -1;
+    }
+
+    public int size() {
+        return this.elems.length;
+    }
+
+    public double getTime() {
+        return this.now;
+    }
+
+    /*
+     * Pushes one request into the first component and steps the model
+     * until all components are free, like App.Simulator.runSample()
+     */
+    public void runSample() {
+        this.process(0);
+
+        while (this.step()) {
+            // until all components are free
+        }
+    }
+
+    /*
+     * Goes to the nearest finish of a work,
+     * returns false if all components are free
+     */
+    public boolean step() {
+        if (this.heapSize == 0) {
+            return false;
+        }
+
+        this.now = this.finish[this.heap[0]];
+
+        while (this.heapSize > 0 && this.finish[this.heap[0]] <= this.now) {
+            this.active.set(this.pop());
+        }
+        this.active.or(this.waiting);
+
+        // components set meanwhile below the current one are visited too
+        for (int i = this.active.length() - 1; i >= 0; i = this.active.previousSetBit(i - 1)) {
+            if (this.kind[i] == DEVICE) {
+                this.end(i);
+            } else {
+                this.runQueue(i);
+            }
+        }
+        this.active.clear();
+
+        return true;
+    }
+
+    private void account(int i) {
+        double dt = this.now - this.last[i];
+
+        if (this.busy[i]) {
+            this.busyTime[i] += dt;
+        }
+        this.totalTime[i] += dt;
+        this.last[i] = this.now;
+    }
+
+    private void start(int i, double work) {
+        this.account(i);
+
+        this.busy[i] = true;
+        this.finish[i] = this.now + work;
+        this.push(i);
+    }
+
+    private void end(int i) {
+        this.account(i);
+
+        this.busy[i] = false;
+        this.served[i]++;
+
+        if (this.next[i] >= 0) {
+            this.process(this.next[i]);
+        }
+    }
+
+    private void runQueue(int i) {
+        int next = this.next[i];
+
+        if (next >= 0) {
+            while (this.isFree(next) && this.size[i] > 0) {
+                this.process(next);
+
+                this.size[i]--;
+                this.served[i]++;
+            }
+        }
+
+        this.waiting.set(i, this.size[i] > 0);
+    }
+
+    /*
+     * Component.process() of the i-th component
+     */
+    public boolean process(int i) {
+        switch (this.kind[i]) {
+            case QUEUE -> {
+                this.requests[i]++;
+
+                if (this.next[i] >= 0 && this.isFree(this.next[i])) {
+                    this.process(this.next[i]);
+                    this.served[i]++;
+                } else {
+                    this.size[i]++;
+                    this.waiting.set(i);
+                    this.active.set(i);
+                }
+
+                return true;
+            }
+            case DEVICE -> {
+                if (this.busy[i]) {
+                    return false;
+                }
+
+                this.start(i, this.rand[i].next_rand());
+                return true;
+            }
+            default -> {
+                this.requests[i]++;
+
+                int chosen = this.choose(i);
+                return chosen >= 0
+                    ? this.process(chosen)
+                    : true;
+            }
+        }
+    }
+
+    /*
+     * Component.getWorkTime().isEmpty()
+     */
+    private boolean isFree(int i) {
+        return switch (this.kind[i]) {
+            case DEVICE -> !this.busy[i];
+            case QUEUE -> true;
+            default -> {
+                int from = this.childStart[i];
+                int to = this.childStart[i + 1];
+
+                for (int k = from; k < to; k++) {
+                    if (this.isFree(this.children[k])) {
+                        yield true;
+                    }
+                }
+
+                yield from == to;
+            }
+        };
+    }
+
+    private int choose(int i) {
+        for (int k = this.childStart[i + 1] - 1; k >= this.childStart[i]; k--) {
+            if (this.isFree(this.children[k])) {
+                return this.children[k];
+            }
+        }
+
+        return -1;
+    }
+
+    private void push(int index) {
+        if (this.heapSize == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, this.heapSize * 2);
+        }
+
+        double time = this.finish[index];
+
+        int i = this.heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+
+            if (this.finish[this.heap[parent]] <= time) {
+                break;
+            }
+
+            this.heap[i] = this.heap[parent];
+            i = parent;
+        }
+
+        this.heap[i] = index;
+    }
+
+    private int pop() {
+        int top = this.heap[0];
+        int index = this.heap[--this.heapSize];
+        double time = this.finish[index];
+
+        int i = 0;
+        while (2 * i + 1 < this.heapSize) {
+            int child = 2 * i + 1;
+
+            if (child + 1 < this.heapSize && this.finish[this.heap[child + 1]] < this.finish[this.heap[child]]) {
+                child++;
+            }
+
+            if (time <= this.finish[this.heap[child]]) {
+                break;
+            }
+
+            this.heap[i] = this.heap[child];
+            i = child;
+        }
+
+        this.heap[i] = index;
+        return top;
+    }
+
+    /*
+     * Adds the stats gathered since the last call to the Stats objects
+     * and sets the queue sizes and work times of the components
+     */
+    public void writeBack() {
+        for (int i = 0; i < this.elems.length; i++) {
+            switch (this.kind[i]) {
+                case DEVICE -> {
+                    var device = ((CompDevice) this.elems[i]).getDevice();
+
+                    this.account(i);
+                    device.getStats().add(this.busyTime[i], this.totalTime[i], this.served[i]);
+                    device.setWorkTime(this.busy[i]
+                        ? Optional.of(this.finish[i] - this.now)
+                        : Optional.empty());
+                }
+                case QUEUE -> {
+                    var queue = (Queue) this.elems[i];
+
+                    queue.getStats().add(this.requests[i], this.served[i]);
+                    queue.setSize(this.size[i]);
+                }
+                default -> {
+                    var con = (Connection) this.elems[i];
+
+                    this.account(i);
+                    con.getStats().add(this.requests[i], this.totalTime[i]);
+                }
+            }
+
+            this.busyTime[i] = 0;
+            this.totalTime[i] = 0;
+            this.requests[i] = 0;
+            this.served[i] = 0;
+        }
+    }
+}
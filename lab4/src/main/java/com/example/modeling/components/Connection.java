@@ -1,6 +1,7 @@
 package com.example.modeling.components;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +25,14 @@ public class Connection implements Component {
         this.next.add(Pair.createPair(next, score));
     }
 
+    public List<Pair<Component, Long>> getNextWithScores() {
+        return Collections.unmodifiableList(this.next);
+    }
+
+    public NextPriority getPriority() {
+        return this.priority;
+    }
+
     @Override
     public void run(double time) {
         this.stats.updateTime(time);
@@ -64,6 +73,14 @@ public class Connection implements Component {
             this.totalTime += time;
         }
 
+        /*
+         * Adds stats gathered outside of the connection, e.g. by a compiled model
+         */
+        public void add(long requests, double time) {
+            this.requestsNumber += requests;
+            this.totalTime += time;
+        }
+
         public double getThroughput() {
             return totalTime / Double.valueOf(requestsNumber) ;
         }
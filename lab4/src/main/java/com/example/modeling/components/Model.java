@@ -3,54 +3,53 @@ package com.example.modeling.components;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 import com.example.utils.Pair;
 import com.example.modeling.components.Connection.NextPriority;
 import com.example.modeling.components.device.Device.DeviceRand;
 
+/*
+ * Generators draw from the generator of the current thread,
+ * so models simulated in parallel don't wait on each other
+ */
 public final class Model {
-    private static final Object lock = new Object();
-    private static final Random r = new Random();
 
-        public static DeviceRand getFixed(double num) {
+    public static DeviceRand getFixed(double num) {
         return () -> num;
     }
 
     public static DeviceRand getNorm(double mean, double std) {
         return () -> {
-            synchronized (lock) {
-               return r.nextGaussian(mean, std);
-            }
+            return ThreadLocalRandom.current().nextGaussian(mean, std);
         };
     }
 
     public static DeviceRand getUniform(double from, double to) {
         return () -> {
-            synchronized (lock) {
-                double n = r.nextDouble();
-                while (n == 0.0) {
-                    n = r.nextDouble();
-                }
+            var r = ThreadLocalRandom.current();
 
-                return from + (to - from) * n;
+            double n = r.nextDouble();
+            while (n == 0.0) {
+                n = r.nextDouble();
             }
+
+            return from + (to - from) * n;
         };
     }
 
     public static DeviceRand getExponential(double mean) {
         return () -> {
-            synchronized (lock) {
-                double lambda = 1/mean;
-
-                double n = r.nextDouble();
-                while (n == 0.0) {
-                    n = r.nextDouble();
-                }
+            var r = ThreadLocalRandom.current();
+            double lambda = 1/mean;
 
-                return -(1.0 / lambda) * Math.log(n);
+            double n = r.nextDouble();
+            while (n == 0.0) {
+                n = r.nextDouble();
             }
+
+            return -(1.0 / lambda) * Math.log(n);
         };
     }
 
@@ -87,10 +86,7 @@ public final class Model {
                     .mapToLong(p -> p.get1().longValue())
                     .sum();
 
-            double r = 0;
-            synchronized (lock) {
-               r = Math.random() * total;
-            }
+            double r = ThreadLocalRandom.current().nextDouble() * total;
             
             double cumulative = 0.0;
 
@@ -127,10 +123,7 @@ public final class Model {
                     .mapToLong(p -> p.get1().longValue())
                     .sum();
 
-            double r = 0;
-            synchronized (lock) {
-               r = Math.random() * total;
-            }
+            double r = ThreadLocalRandom.current().nextDouble() * total;
             double cumulative = 0.0;
 
             for (Pair<Component, Long> p : next) {
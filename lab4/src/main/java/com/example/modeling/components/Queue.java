@@ -137,6 +137,14 @@ public class Queue implements Component {
             this.served+=1;
         }
 
+        /*
+         * Adds stats gathered outside of the queue, e.g. by a compiled model
+         */
+        public void add(long requests, long served) {
+            this.requests += requests;
+            this.served += served;
+        }
+
         public double getAverageQueueSize() {
             if (this.queueSizies.size() == 0) {
                 return 0.0;
@@ -22,6 +22,18 @@ public class Device {
         this.name = name;
     }
 
+    public DeviceRand getRand() {
+        return this.rand;
+    }
+
+    /*
+     * Restarts the device with the given work time left, empty for a free device
+     */
+    public void setWorkTime(Optional<Double> time) {
+        this.required_time = time;
+        this.current_time = 0.0;
+    }
+
     public Optional<Double> getWorkTime() {
         return Optional.ofNullable(required_time
                 .map(t -> t - this.current_time)
@@ -109,6 +121,15 @@ public class Device {
             this.processed += 1;
         }
 
+        /*
+         * Adds stats gathered outside of the device, e.g. by a compiled model
+         */
+        public void add(double busyTime, double totalTime, long processed) {
+            this.busy_time += busyTime;
+            this.total_time += totalTime;
+            this.processed += processed;
+        }
+
         public double getUtilization() {
             return this.total_time != 0
                     ? this.busy_time / this.total_time
@@ -0,0 +1,162 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.example.modeling.components.CompDevice;
+import com.example.modeling.components.CompiledModel;
+import com.example.modeling.components.Component;
+import com.example.modeling.components.Connection;
+import com.example.modeling.components.Model;
+import com.example.modeling.components.Producer;
+import com.example.modeling.components.Queue;
+import com.example.modeling.components.device.Device;
+import com.example.modeling.components.device.Device.DeviceRand;
+
+/**
+ * The same models with the same seeds give the same stats
+ * with App.Simulator and CompiledModel, up to rounding
+ */
+public class CompiledModelTest
+{
+    static DeviceRand exponential(long seed)
+    {
+        var r = new Random(seed);
+        return () -> -25 * Math.log(1 - r.nextDouble());
+    }
+
+    @Test
+    public void tandemTest()
+    {
+        var components = App.createModel1(200, exponential(1));
+        var compiled = App.createModel1(200, exponential(1));
+
+        for (int i = 0; i < 10; i++) {
+            App.Simulator.runSample(components);
+        }
+
+        var model = CompiledModel.compile(compiled);
+        for (int i = 0; i < 10; i++) {
+            model.runSample();
+        }
+        model.writeBack();
+
+        assertSameStats(components, compiled);
+    }
+
+    @Test
+    public void fanOutTest()
+    {
+        var components = App.createModel2(50, 10, exponential(2));
+        var compiled = App.createModel2(50, 10, exponential(2));
+
+        for (int i = 0; i < 10; i++) {
+            App.Simulator.runSample(components);
+        }
+
+        var model = CompiledModel.compile(compiled);
+        for (int i = 0; i < 10; i++) {
+            model.runSample();
+        }
+        model.writeBack();
+
+        assertSameStats(components, compiled);
+    }
+
+    @Test
+    public void topologiesTest()
+    {
+        for (var topology : ScalingSuite.Topology.values()) {
+            var components = topology.create(600, exponential(5));
+            var compiled = topology.create(600, exponential(5));
+
+            // several requests wait in the queues of every source
+            for (int i = 0; i < 20; i++) {
+                components.push();
+                components.push();
+                while (App.Simulator.step(components.elems)) {
+                    // until all components are free
+                }
+            }
+
+            var model = CompiledModel.compile(compiled.elems);
+            for (int i = 0; i < 20; i++) {
+                for (int k = 0; k < 2; k++) {
+                    for (var source : compiled.sources) {
+                        model.process(model.indexOf(source));
+                    }
+                }
+                while (model.step()) {
+                    // until all components are free
+                }
+            }
+            model.writeBack();
+
+            assertSameStats(components.elems, compiled.elems);
+        }
+    }
+
+    @Test
+    public void unsupportedTest()
+    {
+        var con = new Connection(new Model.Probability(), "Con");
+        con.addNext(new CompDevice(Model.getFixed(1), "Device"), 1);
+        assertRejected(new Component[] { con, con.getAllNext().get(0) });
+
+        assertRejected(new Component[] { new Producer(Model.getFixed(1), "Producer") });
+
+        var device = new CompDevice(Model.getFixed(1), "Device") {};
+        assertRejected(new Component[] { device });
+    }
+
+    static void assertRejected(Component[] elems)
+    {
+        try {
+            CompiledModel.compile(elems);
+            fail("Compiled " + elems[0].getName());
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    static void assertSameStats(Component[] expected, Component[] actual)
+    {
+        assertEquals(expected.length, actual.length);
+
+        for (int i = 0; i < expected.length; i++) {
+            String name = expected[i].getName();
+            Object st1 = expected[i].getStats();
+            Object st2 = actual[i].getStats();
+
+            if (st1 instanceof Device.Stats d1) {
+                var d2 = (Device.Stats) st2;
+
+                assertEquals(name, d1.getProcessed(), d2.getProcessed());
+                assertClose(name, d1.getBusy_time(), d2.getBusy_time());
+                assertClose(name, d1.getTotal_time(), d2.getTotal_time());
+                assertEquals(name, expected[i].getWorkTime().isPresent(), actual[i].getWorkTime().isPresent());
+            } else if (st1 instanceof Queue.Stats q1) {
+                var q2 = (Queue.Stats) st2;
+
+                assertEquals(name, q1.getRequests(), q2.getRequests());
+                assertEquals(name, q1.getServed(), q2.getServed());
+                assertEquals(name, ((Queue) expected[i]).getSize(), ((Queue) actual[i]).getSize());
+            } else {
+                var c1 = (Connection.Stats) st1;
+                var c2 = (Connection.Stats) st2;
+
+                assertEquals(name, c1.getRequestsNumber(), c2.getRequestsNumber());
+                assertClose(name, c1.getTotalTime(), c2.getTotalTime());
+            }
+        }
+    }
+
+    static void assertClose(String name, double expected, double actual)
+    {
+        assertEquals(name, expected, actual, 1e-9 * Math.max(1, Math.abs(expected)));
+    }
+}